@@ -0,0 +1,95 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse and dispatch cost of a device action request, bound to the typed capability actions
+ * compared to the generic map tree the actions were parsed into before.
+ * Run with {@code ./gradlew jmh}, the gc profiler reports the allocations of both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CapabilityActionBenchmark {
+
+    private static final byte[] REQUEST = """
+            {"payload":{"devices":[{"id":"SN-1","capabilities":[
+              {"type":"devices.capabilities.on_off","state":{"instance":"on","value":true}},
+              {"type":"devices.capabilities.range","state":{"instance":"volume","value":-3,"relative":true}},
+              {"type":"devices.capabilities.range","state":{"instance":"channel","value":12}},
+              {"type":"devices.capabilities.toggle","state":{"instance":"mute","value":true}}
+            ]}]}}""".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Benchmark
+    public int typedActions() {
+        YandexSmartHomeRequest request = objectMapper.readValue(REQUEST, YandexSmartHomeRequest.class);
+        int dispatched = 0;
+        for (YandexSmartHomeRequest.Payload.Device device : request.payload().devices()) {
+            for (CapabilityAction action : device.capabilities()) {
+                dispatched += switch (action) {
+                    case CapabilityAction.OnOff onOff -> onOff.value() ? 1 : 0;
+                    case CapabilityAction.Range range -> range.relative() ? range.value() : range.value() + 1;
+                    case CapabilityAction.Toggle toggle -> toggle.instance().length();
+                    case CapabilityAction.Mode mode -> mode.value().length();
+                    case CapabilityAction.Invalid invalid -> -1;
+                };
+            }
+        }
+        return dispatched;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int mapTree() {
+        MapTreeRequest request = objectMapper.readValue(REQUEST, MapTreeRequest.class);
+        int dispatched = 0;
+        for (MapTreeRequest.Payload.Device device : request.payload().devices()) {
+            for (Map<String, Object> capability : device.capabilities()) {
+                if (!capability.containsKey("type") || !(capability.get("state") instanceof Map)) {
+                    continue;
+                }
+                Map<String, Object> state = (Map<String, Object>) capability.get("state");
+                String instance = (String) state.get("instance");
+                dispatched += switch ((String) capability.get("type")) {
+                    case "devices.capabilities.on_off" -> Boolean.TRUE.equals(state.get("value")) ? 1 : 0;
+                    case "devices.capabilities.range" -> {
+                        int value = ((Number) state.get("value")).intValue();
+                        yield Boolean.TRUE.equals(state.get("relative")) ? value : value + 1;
+                    }
+                    case "devices.capabilities.toggle" -> instance.length();
+                    default -> -1;
+                };
+            }
+        }
+        return dispatched;
+    }
+
+    /**
+     * Action request with the capabilities as a generic map tree, as it was bound before the typed actions.
+     */
+    public record MapTreeRequest(Payload payload) {
+        public record Payload(List<Device> devices) {
+            public record Device(String id, List<Map<String, Object>> capabilities) {
+            }
+        }
+    }
+}
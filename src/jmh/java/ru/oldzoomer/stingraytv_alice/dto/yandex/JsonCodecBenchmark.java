@@ -0,0 +1,86 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.oldzoomer.stingraytv_alice.service.StingrayTVService;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ValueDeserializer;
+import tools.jackson.databind.ValueSerializer;
+import tools.jackson.databind.annotation.JsonDeserialize;
+import tools.jackson.databind.annotation.JsonSerialize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a device query response and reading a receiver channel state with the hand-written codecs,
+ * compared to reflective record binding of the same types, which is switched back on with mix-ins.
+ * Run with {@code ./gradlew jmh}, the gc profiler reports the allocations per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private static final byte[] CHANNEL_STATE = "{\"channelNumber\":12,\"channelListId\":\"list-1\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final YandexSmartHomeResponse QUERY_RESPONSE = new YandexSmartHomeResponse("req-1", "ok",
+            null, null, new YandexSmartHomeResponse.Payload("user-1", List.of(
+                    new YandexSmartHomeResponse.Payload.Device("SN-1", null, null, null, null, List.of(
+                            new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.on_off",
+                                    false, null, Map.of("instance", "on", "value", true)),
+                            new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range",
+                                    false, null, Map.of("instance", "channel", "value", 12)),
+                            new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range",
+                                    false, null, Map.of("instance", "volume", "value", 7))),
+                            null, null, null, null, null, null))));
+
+    private final ObjectMapper codecMapper = new ObjectMapper();
+    private final ObjectMapper reflectiveMapper = JsonMapper.builder()
+            .addMixIn(YandexSmartHomeResponse.class, ReflectiveSerialization.class)
+            .addMixIn(YandexSmartHomeResponse.Payload.Device.class, ReflectiveSerialization.class)
+            .addMixIn(StingrayTVService.ChannelState.class, ReflectiveDeserialization.class)
+            .build();
+
+    @Benchmark
+    public byte[] writeResponseWithCodec() {
+        return codecMapper.writeValueAsBytes(QUERY_RESPONSE);
+    }
+
+    @Benchmark
+    public byte[] writeResponseReflective() {
+        return reflectiveMapper.writeValueAsBytes(QUERY_RESPONSE);
+    }
+
+    @Benchmark
+    public StingrayTVService.ChannelState readChannelStateWithCodec() {
+        return codecMapper.readValue(CHANNEL_STATE, StingrayTVService.ChannelState.class);
+    }
+
+    @Benchmark
+    public StingrayTVService.ChannelState readChannelStateReflective() {
+        return reflectiveMapper.readValue(CHANNEL_STATE, StingrayTVService.ChannelState.class);
+    }
+
+    @JsonSerialize(using = ValueSerializer.None.class)
+    private interface ReflectiveSerialization {
+    }
+
+    @JsonDeserialize(using = ValueDeserializer.None.class)
+    private interface ReflectiveDeserialization {
+    }
+}
@@ -2,6 +2,7 @@ package ru.oldzoomer.stingraytv_alice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for StingrayTV Alice integration.
@@ -9,6 +10,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * for controlling StingrayTV receivers.
  */
 @SpringBootApplication
+@EnableScheduling
 public class StingraytvAliceApplication {
 
     /**
@@ -0,0 +1,29 @@
+package ru.oldzoomer.stingraytv_alice.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import ru.oldzoomer.stingraytv_alice.service.ActionIdempotencyCache;
+
+/**
+ * Cache configuration for repeated device action requests.
+ * Entries are bounded in size and hard-expire after the configured time to live.
+ * Receiver state is not cached here, it is kept by the device shadow of every receiver.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${app.action-idempotency.maximum-size:256}")
+    private long actionMaximumSize;
+
+    @Value("${app.action-idempotency.time-to-live:60s}")
+    private Duration actionTimeToLive;
+
+    @Bean
+    ActionIdempotencyCache actionIdempotencyCache(StingrayConfigurationProperties stingrayProperties) {
+        return new ActionIdempotencyCache(actionMaximumSize, actionTimeToLive, stingrayProperties.getActionTimeout());
+    }
+}
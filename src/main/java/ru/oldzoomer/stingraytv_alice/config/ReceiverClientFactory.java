@@ -0,0 +1,103 @@
+package ru.oldzoomer.stingraytv_alice.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Creates HTTP clients for receiver calls.
+ * Every receiver gets its own small keep-alive connection pool, so a slow receiver
+ * cannot use up the connections of another one.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReceiverClientFactory {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.rest-client.connect-timeout:3000}")
+    private int connectTimeout;
+
+    @Value("${app.rest-client.read-timeout:3000}")
+    private int readTimeout;
+
+    @Value("${app.rest-client.max-connections:2}")
+    private int maxConnections;
+
+    @Value("${app.rest-client.pool-wait-timeout:3000}")
+    private int poolWaitTimeout;
+
+    @Value("${app.rest-client.idle-timeout:60s}")
+    private Duration idleTimeout;
+
+    /**
+     * Creates a client with its own connection pool.
+     * The receiver accepts connections slowly and handles only a few at a time,
+     * so the pool is small and connections are kept open between calls.
+     *
+     * @param receiverId receiver the client connects to, used as the metrics tag
+     * @return receiver client, has to be closed when no longer used
+     */
+    public ReceiverClient create(String receiverId) {
+        ReceiverConnectionManager connectionManager = new ReceiverConnectionManager(meterRegistry, receiverId);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+                .setSocketTimeout(Timeout.ofMilliseconds(readTimeout))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                .build());
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.of(idleTimeout))
+                .disableAutomaticRetries()
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectionRequestTimeout(poolWaitTimeout);
+        RestClient restClient = RestClient.builder()
+                .requestFactory(requestFactory)
+                .defaultHeader("User-Agent", "StingrayTV-Alice/1.0")
+                .defaultStatusHandler(response -> response.getStatusCode().isError())
+                .build();
+
+        return new ReceiverClient(restClient, httpClient);
+    }
+
+    /**
+     * Gets the number of pooled connections per receiver.
+     *
+     * @return maximum number of connections per receiver
+     */
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * HTTP client of a single receiver.
+     *
+     * @param restClient client used for requests
+     * @param httpClient underlying pooled client, closing it closes the pool
+     */
+    public record ReceiverClient(RestClient restClient, CloseableHttpClient httpClient) implements Closeable {
+
+        @Override
+        public void close() throws IOException {
+            httpClient.close();
+        }
+    }
+}
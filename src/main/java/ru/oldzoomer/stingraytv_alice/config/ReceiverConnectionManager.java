@@ -0,0 +1,95 @@
+package ru.oldzoomer.stingraytv_alice.config;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.util.Timeout;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Keep-alive connection pool for receiver calls.
+ * Records how long callers wait for a pooled connection and whether the leased
+ * connection was already open (reused) or has to be connected first.
+ */
+public class ReceiverConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final Timer poolWait;
+    private final Counter reusedConnections;
+    private final Counter newConnections;
+
+    /**
+     * @param meterRegistry registry for pool metrics
+     * @param receiverId receiver the pool connects to, used as the metrics tag
+     */
+    public ReceiverConnectionManager(MeterRegistry meterRegistry, String receiverId) {
+        this.poolWait = Timer.builder("stingray.receiver.pool.wait")
+                .description("Time spent waiting for a pooled receiver connection")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        this.reusedConnections = Counter.builder("stingray.receiver.connections.leased")
+                .description("Receiver connections leased from the pool")
+                .tag("reused", "true")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        this.newConnections = Counter.builder("stingray.receiver.connections.leased")
+                .description("Receiver connections leased from the pool")
+                .tag("reused", "false")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+
+        Gauge.builder("stingray.receiver.connections.reuse.ratio", this, ReceiverConnectionManager::reuseRatio)
+                .description("Share of receiver calls served by an already open connection")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        Gauge.builder("stingray.receiver.pool.leased", this, manager -> manager.getTotalStats().getLeased())
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        Gauge.builder("stingray.receiver.pool.available", this, manager -> manager.getTotalStats().getAvailable())
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        Gauge.builder("stingray.receiver.pool.pending", this, manager -> manager.getTotalStats().getPending())
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseRequest leaseRequest = super.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                long startedAt = System.nanoTime();
+                ConnectionEndpoint endpoint = leaseRequest.get(timeout);
+                poolWait.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+
+                if (isConnected(endpoint)) {
+                    reusedConnections.increment();
+                } else {
+                    newConnections.increment();
+                }
+                return endpoint;
+            }
+
+            @Override
+            public boolean cancel() {
+                return leaseRequest.cancel();
+            }
+        };
+    }
+
+    private double reuseRatio() {
+        double reused = reusedConnections.count();
+        double total = reused + newConnections.count();
+        return total == 0 ? 0 : reused / total;
+    }
+}
@@ -1,11 +1,8 @@
 package ru.oldzoomer.stingraytv_alice.config;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
-import org.springframework.web.reactive.function.client.WebClient;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -13,28 +10,17 @@ import lombok.extern.slf4j.Slf4j;
 @Configuration
 public class RestClientConfig {
 
-    @Value("${app.rest-client.connect-timeout:3000}")
-    private int connectTimeout;
-
-    @Value("${app.rest-client.read-timeout:3000}")
-    private int readTimeout;
-
-    @Bean
-    RestClient restClient() {
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
-        requestFactory.setConnectTimeout(connectTimeout);
-        requestFactory.setReadTimeout(readTimeout);
-        return RestClient.builder()
-                .requestFactory(requestFactory)
-                .defaultHeader("User-Agent", "StingrayTV-Alice/1.0")
-                .defaultStatusHandler(response -> response.getStatusCode().isError())
-                .build();
+    /**
+     * Client used to probe receivers during discovery.
+     * Receivers that are found get their own clients from the {@link ru.oldzoomer.stingraytv_alice.service.ReceiverRegistry}.
+     */
+    @Bean(destroyMethod = "close")
+    ReceiverClientFactory.ReceiverClient discoveryClient(ReceiverClientFactory receiverClientFactory) {
+        return receiverClientFactory.create("discovery");
     }
 
     @Bean
-    WebClient webClient() {
-        return WebClient.builder()
-                .defaultHeader("User-Agent", "StingrayTV-Alice/1.0")
-                .build();
+    RestClient restClient(ReceiverClientFactory.ReceiverClient discoveryClient) {
+        return discoveryClient.restClient();
     }
 }
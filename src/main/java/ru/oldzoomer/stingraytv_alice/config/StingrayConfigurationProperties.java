@@ -1,6 +1,10 @@
 package ru.oldzoomer.stingraytv_alice.config;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -8,6 +12,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Configuration properties for Stingray TV integration
  */
@@ -26,4 +33,211 @@ public class StingrayConfigurationProperties {
     private String receiverIp;
 
     private int receiverPort;
+
+    /**
+     * Whether receivers are discovered via mDNS in addition to the configured IP addresses
+     */
+    private boolean mdnsEnabled = true;
+
+    /**
+     * Whether the local subnets are scanned on the receiver port when no receiver was found otherwise
+     */
+    private boolean subnetScanEnabled;
+
+    /**
+     * Subnets to scan in CIDR notation, the subnets of the local interfaces if empty
+     */
+    private List<String> subnetScanRanges = List.of();
+
+    /**
+     * How long the subnet scan waits for a host to accept a connection
+     */
+    @NotNull(message = "Subnet scan connect timeout is required")
+    private Duration subnetScanConnectTimeout = Duration.ofMillis(300);
+
+    /**
+     * Connection attempts the subnet scan keeps in flight at the same time
+     */
+    @Positive(message = "Subnet scan concurrency must be positive")
+    private int subnetScanMaxConcurrency = 256;
+
+    /**
+     * Time budget for reading the complete device state during a query
+     */
+    @NotNull(message = "Query timeout is required")
+    private Duration queryTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Time budget for executing all actions of a device during an action request
+     */
+    @NotNull(message = "Action timeout is required")
+    private Duration actionTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Command queue of every receiver
+     */
+    @Valid
+    private final CommandQueue commandQueue = new CommandQueue();
+
+    /**
+     * Circuit breaker of every receiver
+     */
+    @Valid
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    /**
+     * Retries and hedged reads of receiver requests
+     */
+    @Valid
+    private final Retry retry = new Retry();
+
+    /**
+     * Remote control key events
+     */
+    @Valid
+    private final KeyEvents keyEvents = new KeyEvents();
+
+    /**
+     * Coalescing of volume and channel commands
+     */
+    @Valid
+    private final Coalescing coalescing = new Coalescing();
+
+    /**
+     * Polling of the device shadow of every receiver
+     */
+    @Valid
+    private final Shadow shadow = new Shadow();
+
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    public static class CommandQueue {
+        /**
+         * How long user commands may wait in the queue before they are dropped
+         */
+        @NotNull(message = "User command TTL is required")
+        private Duration userCommandTtl = Duration.ofSeconds(10);
+
+        /**
+         * How long background reads may wait in the queue before they are dropped
+         */
+        @NotNull(message = "Background TTL is required")
+        private Duration backgroundTtl = Duration.ofSeconds(5);
+    }
+
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    public static class CircuitBreaker {
+        /**
+         * Consecutive failures after which the circuit opens
+         */
+        @Positive(message = "Circuit breaker failure threshold must be positive")
+        private int failureThreshold = 3;
+
+        /**
+         * How long the circuit stays open before a probe is let through
+         */
+        @NotNull(message = "Circuit breaker open duration is required")
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    public static class Retry {
+        /**
+         * Attempts of an idempotent request, including the first one
+         */
+        @Positive(message = "Retry max attempts must be positive")
+        private int maxAttempts = 2;
+
+        /**
+         * Pause before a retry
+         */
+        @NotNull(message = "Retry backoff is required")
+        private Duration backoff = Duration.ofMillis(50);
+
+        /**
+         * Retries allowed per request, earned by successful requests
+         */
+        @PositiveOrZero(message = "Retry budget ratio must not be negative")
+        private double budgetRatio = 0.1;
+
+        /**
+         * Most retries that can be saved up in the budget
+         */
+        @PositiveOrZero(message = "Retry budget max must not be negative")
+        private double budgetMax = 10;
+
+        /**
+         * Shortest delay before a hedged read is sent
+         */
+        @NotNull(message = "Hedge min delay is required")
+        private Duration hedgeMinDelay = Duration.ofMillis(50);
+
+        /**
+         * Delay before a hedged read is sent until enough latencies were recorded
+         */
+        @NotNull(message = "Hedge initial delay is required")
+        private Duration hedgeInitialDelay = Duration.ofMillis(500);
+    }
+
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    public static class KeyEvents {
+        /**
+         * Pause between the keys of a key sequence
+         */
+        @NotNull(message = "Key event spacing is required")
+        private Duration spacing = Duration.ofMillis(100);
+    }
+
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    public static class Coalescing {
+        /**
+         * Window in which volume and channel commands are coalesced, 0 sends every command
+         */
+        @NotNull(message = "Coalescing window is required")
+        private Duration window = Duration.ofMillis(150);
+
+        /**
+         * How long a coalesced command waits for its value to be sent after the window closed
+         */
+        @NotNull(message = "Coalescing max wait is required")
+        private Duration maxWait = Duration.ofSeconds(15);
+    }
+
+    @Getter
+    @Setter(AccessLevel.PACKAGE)
+    public static class Shadow {
+        /**
+         * Poll interval right after an action
+         */
+        @NotNull(message = "Shadow active interval is required")
+        private Duration activeInterval = Duration.ofSeconds(1);
+
+        /**
+         * How long the active interval is used after an action
+         */
+        @NotNull(message = "Shadow active window is required")
+        private Duration activeWindow = Duration.ofSeconds(15);
+
+        /**
+         * Poll interval while the device is on
+         */
+        @NotNull(message = "Shadow on interval is required")
+        private Duration onInterval = Duration.ofSeconds(5);
+
+        /**
+         * Poll interval while the device is in standby
+         */
+        @NotNull(message = "Shadow standby interval is required")
+        private Duration standbyInterval = Duration.ofSeconds(30);
+
+        /**
+         * Longest poll interval while the device is unreachable
+         */
+        @NotNull(message = "Shadow max backoff is required")
+        private Duration maxBackoff = Duration.ofSeconds(60);
+    }
 }
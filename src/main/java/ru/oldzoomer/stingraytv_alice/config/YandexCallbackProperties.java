@@ -0,0 +1,47 @@
+package ru.oldzoomer.stingraytv_alice.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for Yandex Smart Home state change notifications
+ */
+@Getter
+@Setter(AccessLevel.PACKAGE)
+@Validated
+@Component
+@ConfigurationProperties(prefix = "app.yandex.callback")
+public class YandexCallbackProperties {
+    @NotBlank(message = "Callback URL is required")
+    private String url = "https://dialogs.yandex.net";
+
+    private String skillId;
+
+    private String token;
+
+    private Duration debounce = Duration.ofSeconds(1);
+
+    @Min(value = 1, message = "At least one attempt is required")
+    private int maxAttempts = 5;
+
+    private Duration initialBackoff = Duration.ofMillis(500);
+
+    @Min(value = 1, message = "At least one request in flight is required")
+    private int maxInFlight = 2;
+
+    /**
+     * Notifications are sent only when both the skill ID and the token are configured
+     */
+    public boolean isEnabled() {
+        return StringUtils.hasText(skillId) && StringUtils.hasText(token);
+    }
+}
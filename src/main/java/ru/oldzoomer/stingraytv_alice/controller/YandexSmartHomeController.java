@@ -2,6 +2,7 @@ package ru.oldzoomer.stingraytv_alice.controller;
 
 import org.jspecify.annotations.NonNull;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -44,15 +45,16 @@ public class YandexSmartHomeController {
     /**
      * Handles user device discovery request (GET).
      * This endpoint is called by Yandex Smart Home to discover available devices.
+     * The response is already serialized, so it is written as is.
      *
      * @param requestId unique identifier for the request
      * @return ResponseEntity with device discovery response
      */
     @GetMapping("/user/devices")
-    public ResponseEntity<@NonNull YandexSmartHomeResponse> getUserDevices(@RequestHeader("X-Request-Id") String requestId) {
+    public ResponseEntity<byte @NonNull []> getUserDevices(@RequestHeader("X-Request-Id") String requestId) {
         log.debug("Processing device discovery request with ID: {}", requestId);
-        YandexSmartHomeResponse response = smartHomeService.processUserDevicesRequest(requestId);
-        return ResponseEntity.ok(response);
+        byte[] response = smartHomeService.processUserDevicesRequest(requestId);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(response);
     }
 
     /**
@@ -0,0 +1,95 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import tools.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Capability action of a device action request, bound directly from JSON by {@link CapabilityActionDeserializer}.
+ * Actions that cannot be understood are bound as {@link Invalid}, so they are rejected for their capability only
+ * instead of failing the whole request.
+ */
+@JsonDeserialize(using = CapabilityActionDeserializer.class)
+public sealed interface CapabilityAction {
+
+    String ON_OFF = "devices.capabilities.on_off";
+    String RANGE = "devices.capabilities.range";
+    String TOGGLE = "devices.capabilities.toggle";
+    String MODE = "devices.capabilities.mode";
+
+    /**
+     * Gets the capability type, e.g. "devices.capabilities.range".
+     *
+     * @return capability type, null if missing in the request
+     */
+    String type();
+
+    /**
+     * Gets the capability instance, e.g. "volume".
+     *
+     * @return capability instance, null if missing in the request
+     */
+    String instance();
+
+    /**
+     * Turns the device on or off.
+     *
+     * @param instance capability instance, always "on"
+     * @param value true to turn the device on
+     */
+    record OnOff(String instance, boolean value) implements CapabilityAction {
+        @Override
+        public String type() {
+            return ON_OFF;
+        }
+    }
+
+    /**
+     * Sets a range value, e.g. volume or channel.
+     *
+     * @param instance capability instance
+     * @param value new value, or change of the current value if relative
+     * @param relative whether the value is relative to the current value
+     */
+    record Range(String instance, int value, boolean relative) implements CapabilityAction {
+        @Override
+        public String type() {
+            return RANGE;
+        }
+    }
+
+    /**
+     * Switches a toggle, e.g. mute or pause.
+     *
+     * @param instance capability instance
+     * @param value new toggle state
+     */
+    record Toggle(String instance, boolean value) implements CapabilityAction {
+        @Override
+        public String type() {
+            return TOGGLE;
+        }
+    }
+
+    /**
+     * Selects a mode.
+     *
+     * @param instance capability instance
+     * @param value selected mode
+     */
+    record Mode(String instance, String value) implements CapabilityAction {
+        @Override
+        public String type() {
+            return MODE;
+        }
+    }
+
+    /**
+     * Action that was rejected while parsing.
+     *
+     * @param type capability type, null if missing in the request
+     * @param instance capability instance, null if missing in the request
+     * @param errorCode Yandex error code of the rejection
+     * @param errorMessage human readable reason of the rejection
+     */
+    record Invalid(String type, String instance, String errorCode, String errorMessage) implements CapabilityAction {
+    }
+}
@@ -0,0 +1,121 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.ValueDeserializer;
+
+/**
+ * Binds a capability action straight from the JSON stream, without building a map tree first.
+ * A capability with a missing or mistyped type, instance or value is bound as {@link CapabilityAction.Invalid}
+ * with an "INVALID_VALUE" error, an unknown capability type with an "INVALID_ACTION" error.
+ * Only input that is not a JSON object at all fails the request.
+ */
+public class CapabilityActionDeserializer extends ValueDeserializer<CapabilityAction> {
+
+    private static final String INVALID_VALUE = "INVALID_VALUE";
+    private static final String INVALID_ACTION = "INVALID_ACTION";
+
+    @Override
+    public CapabilityAction deserialize(JsonParser p, DeserializationContext ctxt) {
+        if (!p.isExpectedStartObjectToken()) {
+            return (CapabilityAction) ctxt.handleUnexpectedToken(CapabilityAction.class, p);
+        }
+
+        String type = null;
+        State state = null;
+        while (p.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = p.currentName();
+            JsonToken token = p.nextToken();
+            switch (name) {
+                case "type" -> type = token == JsonToken.VALUE_STRING ? p.getValueAsString() : null;
+                case "state" -> state = token == JsonToken.START_OBJECT ? readState(p) : skip(p);
+                default -> p.skipChildren();
+            }
+        }
+        return toAction(type, state);
+    }
+
+    private static State readState(JsonParser p) {
+        State state = new State();
+        while (p.nextToken() == JsonToken.PROPERTY_NAME) {
+            String name = p.currentName();
+            JsonToken token = p.nextToken();
+            switch (name) {
+                case "instance" -> state.instance = token == JsonToken.VALUE_STRING ? p.getValueAsString() : null;
+                case "value" -> state.readValue(p, token);
+                case "relative" -> state.relative = token == JsonToken.VALUE_TRUE;
+                default -> p.skipChildren();
+            }
+        }
+        return state;
+    }
+
+    private static State skip(JsonParser p) {
+        p.skipChildren();
+        return null;
+    }
+
+    private static CapabilityAction toAction(String type, State state) {
+        if (type == null) {
+            return invalid(null, state, "Capability type is missing");
+        }
+        if (state == null || state.instance == null) {
+            return invalid(type, state, "Capability state instance is missing");
+        }
+
+        return switch (type) {
+            case CapabilityAction.ON_OFF -> state.valueToken == JsonToken.VALUE_TRUE
+                    || state.valueToken == JsonToken.VALUE_FALSE
+                    ? new CapabilityAction.OnOff(state.instance, state.valueToken == JsonToken.VALUE_TRUE)
+                    : invalid(type, state, "Value of on_off must be a boolean");
+            case CapabilityAction.RANGE -> state.hasIntValue
+                    ? new CapabilityAction.Range(state.instance, state.intValue, state.relative)
+                    : invalid(type, state, "Value of range must be an integer number");
+            case CapabilityAction.TOGGLE -> state.valueToken == JsonToken.VALUE_TRUE
+                    || state.valueToken == JsonToken.VALUE_FALSE
+                    ? new CapabilityAction.Toggle(state.instance, state.valueToken == JsonToken.VALUE_TRUE)
+                    : invalid(type, state, "Value of toggle must be a boolean");
+            case CapabilityAction.MODE -> state.stringValue != null
+                    ? new CapabilityAction.Mode(state.instance, state.stringValue)
+                    : invalid(type, state, "Value of mode must be a string");
+            default -> new CapabilityAction.Invalid(type, state.instance, INVALID_ACTION,
+                    "Unsupported capability type: " + type);
+        };
+    }
+
+    private static CapabilityAction.Invalid invalid(String type, State state, String errorMessage) {
+        return new CapabilityAction.Invalid(type, state != null ? state.instance : null, INVALID_VALUE, errorMessage);
+    }
+
+    /**
+     * Fields of the "state" object, read before the capability type may be known.
+     */
+    private static final class State {
+        private String instance;
+        private JsonToken valueToken;
+        private boolean hasIntValue;
+        private int intValue;
+        private String stringValue;
+        private boolean relative;
+
+        private void readValue(JsonParser p, JsonToken token) {
+            valueToken = token;
+            switch (token) {
+                case VALUE_NUMBER_INT -> {
+                    hasIntValue = p.getNumberType() == JsonParser.NumberType.INT;
+                    intValue = hasIntValue ? p.getIntValue() : 0;
+                }
+                case VALUE_NUMBER_FLOAT -> {
+                    // Only whole numbers written with a fraction, e.g. 5.0, are range values
+                    double value = p.getDoubleValue();
+                    hasIntValue = value == Math.rint(value)
+                            && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;
+                    intValue = (int) value;
+                }
+                case VALUE_STRING -> stringValue = p.getValueAsString();
+                default -> p.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.List;
+
+/**
+ * DTO for Yandex Smart Home state change notification
+ */
+public record YandexCallbackRequest(
+    double ts,
+
+    @NotNull
+    @Valid
+    Payload payload
+) {
+    public record Payload(
+        @JsonProperty("user_id")
+        @NotNull
+        String userId,
+
+        @NotNull
+        @Valid
+        List<@Valid Device> devices
+    ) {
+        public record Device(
+            @NotNull
+            String id,
+
+            List<@Valid Capability> capabilities
+        ) {
+            public record Capability(
+                @NotNull
+                String type,
+
+                @NotNull
+                @Valid
+                State state
+            ) {
+                public record State(
+                    @NotNull
+                    String instance,
+
+                    @NotNull
+                    Object value
+                ) {
+                }
+            }
+        }
+    }
+}
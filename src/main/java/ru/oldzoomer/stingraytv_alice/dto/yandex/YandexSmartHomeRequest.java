@@ -5,7 +5,6 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 
 import java.util.List;
-import java.util.Map;
 
 public record YandexSmartHomeRequest(
     @Valid
@@ -23,7 +22,7 @@ public record YandexSmartHomeRequest(
             @NotNull
             String id,
 
-            List<Map<String, Object>> capabilities
+            List<CapabilityAction> capabilities
         ) {
         }
     }
@@ -4,11 +4,13 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import tools.jackson.databind.annotation.JsonSerialize;
 
 import java.util.List;
 import java.util.Map;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonSerialize(using = YandexSmartHomeResponseSerializer.class)
 public record YandexSmartHomeResponse(
     @JsonProperty("request_id")
     String requestId,
@@ -34,6 +36,7 @@ public record YandexSmartHomeResponse(
         List<@Valid Device> devices
     ) {
         @JsonInclude(JsonInclude.Include.NON_NULL)
+        @JsonSerialize(using = YandexSmartHomeResponseSerializer.DeviceSerializer.class)
         public record Device(
             @NotNull
             String id,
@@ -50,7 +53,13 @@ public record YandexSmartHomeResponse(
             StatusInfo statusInfo,
             @JsonProperty("device_info")
             @Valid
-            DeviceInfo deviceInfo
+            DeviceInfo deviceInfo,
+            @JsonProperty("error_code")
+            String errorCode,
+            @JsonProperty("error_message")
+            String errorMessage,
+            @JsonProperty("action_result")
+            Map<String, Object> actionResult
         ) {
             @JsonInclude(JsonInclude.Include.NON_NULL)
             public record Capability(
@@ -0,0 +1,161 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.SerializationContext;
+import tools.jackson.databind.ValueSerializer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes Yandex Smart Home responses field by field, without reflective bean introspection.
+ * The output is the same as the annotated records would produce: snake_case names, null fields left out.
+ * Capability parameters and states are written by walking their maps directly.
+ */
+public class YandexSmartHomeResponseSerializer extends ValueSerializer<YandexSmartHomeResponse> {
+
+    @Override
+    public void serialize(YandexSmartHomeResponse response, JsonGenerator gen, SerializationContext ctxt) {
+        gen.writeStartObject();
+        writeString(gen, "request_id", response.requestId());
+        writeString(gen, "status", response.status());
+        writeString(gen, "error_code", response.errorCode());
+        writeString(gen, "error_message", response.errorMessage());
+        if (response.payload() != null) {
+            YandexSmartHomeResponse.Payload payload = response.payload();
+            gen.writeName("payload");
+            gen.writeStartObject();
+            writeString(gen, "user_id", payload.userId());
+            if (payload.devices() != null) {
+                gen.writeName("devices");
+                writeDevices(gen, payload.devices(), ctxt);
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeDevices(JsonGenerator gen, List<YandexSmartHomeResponse.Payload.Device> devices,
+                                     SerializationContext ctxt) {
+        gen.writeStartArray();
+        for (YandexSmartHomeResponse.Payload.Device device : devices) {
+            writeDevice(gen, device, ctxt);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeDevice(JsonGenerator gen, YandexSmartHomeResponse.Payload.Device device,
+                                    SerializationContext ctxt) {
+        gen.writeStartObject();
+        writeString(gen, "id", device.id());
+        writeString(gen, "name", device.name());
+        writeString(gen, "description", device.description());
+        writeString(gen, "room", device.room());
+        writeString(gen, "type", device.type());
+        if (device.capabilities() != null) {
+            gen.writeName("capabilities");
+            gen.writeStartArray();
+            for (YandexSmartHomeResponse.Payload.Device.Capability capability : device.capabilities()) {
+                writeCapability(gen, capability.type(), capability.retrievable(), capability.parameters(),
+                        capability.state(), ctxt);
+            }
+            gen.writeEndArray();
+        }
+        if (device.properties() != null) {
+            gen.writeName("properties");
+            gen.writeStartArray();
+            for (YandexSmartHomeResponse.Payload.Device.Property property : device.properties()) {
+                writeCapability(gen, property.type(), property.retrievable(), property.parameters(),
+                        property.state(), ctxt);
+            }
+            gen.writeEndArray();
+        }
+        if (device.statusInfo() != null) {
+            gen.writeName("status_info");
+            gen.writeStartObject();
+            gen.writeBooleanProperty("reportable", device.statusInfo().reportable());
+            gen.writeEndObject();
+        }
+        if (device.deviceInfo() != null) {
+            YandexSmartHomeResponse.Payload.Device.DeviceInfo deviceInfo = device.deviceInfo();
+            gen.writeName("device_info");
+            gen.writeStartObject();
+            writeString(gen, "manufacturer", deviceInfo.manufacturer());
+            writeString(gen, "model", deviceInfo.model());
+            writeString(gen, "hw_version", deviceInfo.hwVersion());
+            writeString(gen, "sw_version", deviceInfo.swVersion());
+            gen.writeEndObject();
+        }
+        writeString(gen, "error_code", device.errorCode());
+        writeString(gen, "error_message", device.errorMessage());
+        if (device.actionResult() != null) {
+            gen.writeName("action_result");
+            writeValue(gen, device.actionResult(), ctxt);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeCapability(JsonGenerator gen, String type, boolean retrievable,
+                                        Map<String, Object> parameters, Map<String, Object> state,
+                                        SerializationContext ctxt) {
+        gen.writeStartObject();
+        writeString(gen, "type", type);
+        gen.writeBooleanProperty("retrievable", retrievable);
+        if (parameters != null) {
+            gen.writeName("parameters");
+            writeValue(gen, parameters, ctxt);
+        }
+        if (state != null) {
+            gen.writeName("state");
+            writeValue(gen, state, ctxt);
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeString(JsonGenerator gen, String name, String value) {
+        if (value != null) {
+            gen.writeStringProperty(name, value);
+        }
+    }
+
+    private static void writeValue(JsonGenerator gen, Object value, SerializationContext ctxt) {
+        switch (value) {
+            case null -> gen.writeNull();
+            case String string -> gen.writeString(string);
+            case Boolean bool -> gen.writeBoolean(bool);
+            case Integer number -> gen.writeNumber(number);
+            case Long number -> gen.writeNumber(number);
+            case Double number -> gen.writeNumber(number);
+            case Map<?, ?> map -> {
+                gen.writeStartObject();
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    gen.writeName(String.valueOf(entry.getKey()));
+                    writeValue(gen, entry.getValue(), ctxt);
+                }
+                gen.writeEndObject();
+            }
+            case Collection<?> collection -> {
+                gen.writeStartArray();
+                for (Object element : collection) {
+                    writeValue(gen, element, ctxt);
+                }
+                gen.writeEndArray();
+            }
+            default -> ctxt.writeValue(gen, value);
+        }
+    }
+
+    /**
+     * Writes a single device with the same field layout as in a full response.
+     * Used where devices are serialized on their own, e.g. by the discovery response cache.
+     */
+    public static class DeviceSerializer extends ValueSerializer<YandexSmartHomeResponse.Payload.Device> {
+
+        @Override
+        public void serialize(YandexSmartHomeResponse.Payload.Device device, JsonGenerator gen,
+                              SerializationContext ctxt) {
+            writeDevice(gen, device, ctxt);
+        }
+    }
+}
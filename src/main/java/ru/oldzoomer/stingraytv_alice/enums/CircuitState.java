@@ -0,0 +1,10 @@
+package ru.oldzoomer.stingraytv_alice.enums;
+
+/**
+ * States of the receiver circuit breaker
+ */
+public enum CircuitState {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+}
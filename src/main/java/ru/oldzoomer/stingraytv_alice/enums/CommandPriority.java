@@ -0,0 +1,9 @@
+package ru.oldzoomer.stingraytv_alice.enums;
+
+/**
+ * Priority lanes of the receiver command queue, in the order they are served
+ */
+public enum CommandPriority {
+    USER,
+    BACKGROUND
+}
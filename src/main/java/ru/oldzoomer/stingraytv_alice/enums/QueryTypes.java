@@ -2,6 +2,5 @@ package ru.oldzoomer.stingraytv_alice.enums;
 
 public enum QueryTypes {
     DEVICES_QUERY,
-    DEVICES_ACTION,
-    DEVICES_DISCOVERY
+    DEVICES_ACTION
 }
@@ -0,0 +1,30 @@
+package ru.oldzoomer.stingraytv_alice.enums;
+
+/**
+ * Commands that can be applied to the StingrayTV device
+ */
+public enum ReceiverCommand {
+    POWER_ON(true),
+    POWER_OFF(true),
+    VOLUME(true),
+    CHANNEL(true),
+    // Key events toggle the device state, sending them twice undoes the command
+    MUTE(false),
+    PAUSE(false),
+    KEYS(false);
+
+    private final boolean idempotent;
+
+    ReceiverCommand(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
+    /**
+     * Checks whether sending the command more than once has the same effect as sending it once.
+     *
+     * @return true if the command is safe to retry, false otherwise
+     */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+}
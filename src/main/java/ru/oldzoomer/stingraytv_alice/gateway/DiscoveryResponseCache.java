@@ -0,0 +1,181 @@
+package ru.oldzoomer.stingraytv_alice.gateway;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
+import ru.oldzoomer.stingraytv_alice.service.Receiver;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverRegistry;
+import ru.oldzoomer.stingraytv_alice.service.StingrayDeviceDiscoveryService;
+import tools.jackson.core.io.JsonStringEncoder;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Device part of the discovery response, built and serialized in advance.
+ * The devices only change when a receiver is registered or its channel catalog is reloaded,
+ * so they are rebuilt after such a change, and a discovery request only writes its request ID
+ * and user ID around the serialized devices instead of building and serializing them again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DiscoveryResponseCache {
+
+    private static final int DEFAULT_MAX_CHANNEL = 9999;
+    private static final byte[] REQUEST_ID = "{\"request_id\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] USER_ID = "\",\"status\":\"ok\",\"payload\":{\"user_id\":\""
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DEVICES = "\",\"devices\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END = "}}".getBytes(StandardCharsets.UTF_8);
+
+    private final StingrayConfigurationProperties stingrayConfigurationProperties;
+    private final ReceiverRegistry receiverRegistry;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Devices devices;
+
+    /**
+     * Gets the devices of the discovery response.
+     *
+     * @return devices of all known receivers, ordered by serial number
+     */
+    public List<YandexSmartHomeResponse.Payload.Device> devices() {
+        return current().devices();
+    }
+
+    /**
+     * Writes the discovery response for a request.
+     *
+     * @param requestId unique identifier for the request, not null
+     * @param userId identifier of the authenticated user, not null
+     * @return serialized discovery response
+     */
+    public byte[] write(String requestId, String userId) {
+        byte[] json = current().json();
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        byte[] quotedRequestId = encoder.quoteAsUTF8(requestId);
+        byte[] quotedUserId = encoder.quoteAsUTF8(userId);
+
+        byte[] response = new byte[REQUEST_ID.length + quotedRequestId.length + USER_ID.length
+                + quotedUserId.length + DEVICES.length + json.length + END.length];
+        int position = append(response, 0, REQUEST_ID);
+        position = append(response, position, quotedRequestId);
+        position = append(response, position, USER_ID);
+        position = append(response, position, quotedUserId);
+        position = append(response, position, DEVICES);
+        position = append(response, position, json);
+        append(response, position, END);
+        return response;
+    }
+
+    /**
+     * Rebuilds the devices after a receiver has been registered.
+     *
+     * @param event registered receiver
+     */
+    @EventListener
+    public void onReceiverRegistered(ReceiverRegistry.ReceiverRegisteredEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the devices after the channel catalog of a receiver has been reloaded,
+     * since the channel range depends on it.
+     *
+     * @param event updated receiver
+     */
+    @EventListener
+    public void onReceiverUpdated(ReceiverRegistry.ReceiverUpdatedEvent event) {
+        rebuild();
+    }
+
+    private void rebuild() {
+        generation.incrementAndGet();
+        current();
+    }
+
+    private Devices current() {
+        long expected = generation.get();
+        Devices cached = devices;
+        if (cached != null && cached.generation() == expected) {
+            return cached;
+        }
+
+        // An older build stored by a concurrent caller is replaced on the next call
+        List<YandexSmartHomeResponse.Payload.Device> built = receiverRegistry.receivers().stream()
+                .sorted(Comparator.comparing(Receiver::serialNumber))
+                .map(this::createDevice)
+                .toList();
+        Devices rebuilt = new Devices(expected, built, objectMapper.writeValueAsBytes(built));
+        devices = rebuilt;
+        log.debug("Prepared discovery response with {} devices ({} bytes)", built.size(), rebuilt.json().length);
+        return rebuilt;
+    }
+
+    private YandexSmartHomeResponse.Payload.Device createDevice(Receiver receiver) {
+        StingrayDeviceDiscoveryService.Device stingrayDevice = receiver.device();
+        return new YandexSmartHomeResponse.Payload.Device(
+                stingrayDevice.serialNumber(),
+                stingrayDevice.model(),
+                stingrayConfigurationProperties.getDeviceDescription(),
+                stingrayConfigurationProperties.getRoom(),
+                "devices.types.media_device.receiver",
+                createDeviceCapabilities(receiver),
+                null,
+                new YandexSmartHomeResponse.Payload.Device.StatusInfo(true),
+                new YandexSmartHomeResponse.Payload.Device.DeviceInfo("General Satellite", stingrayDevice.model(),
+                        stingrayDevice.hardwareId(), stingrayDevice.softwareVersion()),
+                null,
+                null,
+                null
+        );
+    }
+
+    /**
+     * Creates the list of device capabilities.
+     * Defines what actions and properties this device supports.
+     *
+     * @param receiver the receiver to describe
+     * @return List of device capabilities
+     */
+    private List<YandexSmartHomeResponse.Payload.Device.Capability> createDeviceCapabilities(Receiver receiver) {
+        return List.of(
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.on_off", true, null, null),
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", true,
+                        Map.of("instance", "volume", "unit", "unit.percent",
+                                "range", Map.of("min", 0, "max", 20, "precision", 1)), null),
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", true,
+                        Map.of("instance", "channel", "random_access", true,
+                                "range", Map.of("min", 0, "max", receiver.channelCatalog().maxChannelNumber(DEFAULT_MAX_CHANNEL),
+                                        "precision", 1)), null),
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.toggle", false,
+                        Map.of("instance", "mute"), null),
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.toggle", false,
+                        Map.of("instance", "pause"), null)
+        );
+    }
+
+    private static int append(byte[] target, int position, byte[] source) {
+        System.arraycopy(source, 0, target, position, source.length);
+        return position + source.length;
+    }
+
+    /**
+     * Devices of the discovery response.
+     *
+     * @param generation registry change the devices were built after
+     * @param devices devices of all known receivers
+     * @param json devices serialized as a JSON array
+     */
+    private record Devices(long generation, List<YandexSmartHomeResponse.Payload.Device> devices, byte[] json) {
+    }
+}
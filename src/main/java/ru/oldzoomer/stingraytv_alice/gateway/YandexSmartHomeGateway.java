@@ -4,18 +4,25 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.CapabilityAction;
 import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeRequest;
 import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
 import ru.oldzoomer.stingraytv_alice.enums.QueryTypes;
-import ru.oldzoomer.stingraytv_alice.service.StingrayDeviceDiscoveryService;
-import ru.oldzoomer.stingraytv_alice.service.StingrayTVService;
+import ru.oldzoomer.stingraytv_alice.service.DeviceShadow;
+import ru.oldzoomer.stingraytv_alice.service.Receiver;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverRegistry;
+import ru.oldzoomer.stingraytv_alice.util.ParallelScope;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Main gateway for Yandex Smart Home integration with StingrayTV API.
- * This component handles all communication between Yandex Smart Home and the StingrayTV receiver.
+ * This component handles all communication between Yandex Smart Home and the StingrayTV receivers,
+ * routing every device of a request to the receiver with the same serial number.
  * It processes requests, manages device capabilities, and coordinates with the service layer.
  */
 @Slf4j
@@ -23,8 +30,13 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class YandexSmartHomeGateway {
     private final StingrayConfigurationProperties stingrayConfigurationProperties;
-    private final StingrayTVService stingrayTVService;
-    private final StingrayDeviceDiscoveryService.Device stingrayDevice;
+    private final ReceiverRegistry receiverRegistry;
+    private final DiscoveryResponseCache discoveryResponseCache;
+
+    private static final String DEVICE_UNREACHABLE = "DEVICE_UNREACHABLE";
+    private static final String DEVICE_UNREACHABLE_MESSAGE = "Receiver is not responding";
+    private static final String INTERNAL_ERROR = "INTERNAL_ERROR";
+    private static final String INVALID_ACTION = "INVALID_ACTION";
 
     /**
      * Processes Yandex Smart Home request with user ID and returns response.
@@ -49,9 +61,23 @@ public class YandexSmartHomeGateway {
         }
     }
 
+    /**
+     * Processes Yandex Smart Home device discovery request and returns the serialized response.
+     * Only the request ID and user ID are written per request, the devices are serialized in advance.
+     *
+     * @param requestId unique identifier for the request
+     * @param userId identifier of the authenticated user
+     * @return serialized discovery response
+     */
+    public byte[] processDiscoveryRequest(String requestId, String userId) {
+        log.info("Handling device discovery request for user: {}", userId);
+        return discoveryResponseCache.write(requestId, userId);
+    }
+
     /**
      * Handles different types of device requests based on the request type.
-     * Routes requests to appropriate handlers for discovery, query, or action operations.
+     * Routes requests to appropriate handlers for query or action operations.
+     * Discovery requests are answered by {@link #processDiscoveryRequest(String, String)}.
      *
      * @param request the incoming request payload
      * @param requestId unique identifier for the request
@@ -64,85 +90,105 @@ public class YandexSmartHomeGateway {
         log.debug("Handling devices request of type: {}", type);
         // Determine request type based on payload structure
         return switch (type) {
-            case DEVICES_QUERY -> handleQueryRequest(requestId, userId);
+            case DEVICES_QUERY -> handleQueryRequest(request, requestId, userId);
             case DEVICES_ACTION -> handleActionRequest(request, requestId, userId);
-            case DEVICES_DISCOVERY -> handleDiscoveryRequest(requestId, userId);
             case null -> createErrorResponse(requestId, "Unrecognized request type");
         };
     }
 
-    /**
-     * Handles device discovery requests.
-     * Returns information about available devices to Yandex Smart Home.
-     *
-     * @param requestId unique identifier for the request
-     * @param userId identifier of the authenticated user
-     * @return YandexSmartHomeResponse with device discovery information
-     */
-    private YandexSmartHomeResponse handleDiscoveryRequest(String requestId, String userId) {
-        log.info("Handling device discovery request for user: {}", userId);
-
-        YandexSmartHomeResponse.Payload.Device device = new YandexSmartHomeResponse.Payload.Device(
-                stingrayDevice.serialNumber(),
-                stingrayDevice.model(),
-                stingrayConfigurationProperties.getDeviceDescription(),
-                stingrayConfigurationProperties.getRoom(),
-                "devices.types.media_device.receiver",
-                createDeviceCapabilities(),
-                null,
-                createStatusInfo(),
-                createDeviceInfo(stingrayDevice.model(),
-                        stingrayDevice.hardwareId(), stingrayDevice.softwareVersion())
-        );
-
-        YandexSmartHomeResponse.Payload payload = new YandexSmartHomeResponse.Payload(
-                userId,
-                List.of(device)
-        );
-
-        return new YandexSmartHomeResponse(requestId, "ok", null, null, payload);
-    }
-
     /**
      * Handles device state query requests.
-     * Returns current state information for devices to Yandex Smart Home.
+     * Returns current state information for the requested devices, or for all known receivers
+     * if the request does not name any. Receivers are queried in parallel, so a receiver whose
+     * shadow has to be loaded first does not delay the others, and a receiver whose state was not
+     * read within the query timeout is reported as unreachable.
      *
+     * @param request the incoming request payload
      * @param requestId unique identifier for the request
      * @param userId identifier of the authenticated user
      * @return YandexSmartHomeResponse with device state information
      */
-    private YandexSmartHomeResponse handleQueryRequest(String requestId, String userId) {
+    private YandexSmartHomeResponse handleQueryRequest(YandexSmartHomeRequest request, String requestId,
+                                                       String userId) {
         log.info("Handling device query request for user: {}", userId);
 
         try {
-            YandexSmartHomeResponse.Payload.Device device = new YandexSmartHomeResponse.Payload.Device(
-                    stingrayDevice.serialNumber(),
-                    null,
-                    null,
-                    null,
-                    null,
-                    createCurrentCapabilityStates(),
-                    null,
-                    null,
-                    null
-            );
+            List<String> deviceIds = request != null && request.payload() != null
+                    && request.payload().devices() != null
+                    ? request.payload().devices().stream().map(YandexSmartHomeRequest.Payload.Device::id).toList()
+                    : receiverRegistry.receivers().stream().map(Receiver::serialNumber).toList();
+
+            List<Future<YandexSmartHomeResponse.Payload.Device>> results = new ArrayList<>(deviceIds.size());
+            try (ParallelScope scope = new ParallelScope()) {
+                for (String deviceId : deviceIds) {
+                    results.add(scope.fork(() -> queryDevice(deviceId)));
+                }
+                scope.join(stingrayConfigurationProperties.getQueryTimeout().plusSeconds(1));
+            } catch (TimeoutException e) {
+                log.warn("Device states were not read within the query timeout for request {}", requestId);
+            }
+
+            List<YandexSmartHomeResponse.Payload.Device> devices = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                Future<YandexSmartHomeResponse.Payload.Device> result = results.get(i);
+                devices.add(result.state() == Future.State.SUCCESS ? result.resultNow()
+                        : createDeviceError(deviceIds.get(i), DEVICE_UNREACHABLE, DEVICE_UNREACHABLE_MESSAGE));
+            }
 
             YandexSmartHomeResponse.Payload payload = new YandexSmartHomeResponse.Payload(
                     userId,
-                    List.of(device)
+                    devices
             );
 
             return new YandexSmartHomeResponse(requestId, "ok", null, null, payload);
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return createErrorResponse(requestId, "Failed to query device state");
         } catch (Exception e) {
             log.error("Error handling query request", e);
             return createErrorResponse(requestId, "Failed to query device state");
         }
     }
 
+    /**
+     * Gets the current state of a single device.
+     *
+     * @param deviceId ID of the device, which is the receiver serial number
+     * @return Device state, or a device error if the receiver is not discovered yet or unreachable
+     */
+    private YandexSmartHomeResponse.Payload.Device queryDevice(String deviceId) {
+        Receiver receiver = receiverRegistry.find(deviceId).orElse(null);
+        DeviceShadow.Snapshot snapshot = receiver == null || receiver.circuitBreaker().isOpen()
+                ? null : receiver.shadow().snapshot();
+        if (snapshot == null || !snapshot.reachable()) {
+            log.info("Receiver is unreachable, reporting {} for device {}", DEVICE_UNREACHABLE, deviceId);
+            return createDeviceError(deviceId, DEVICE_UNREACHABLE, DEVICE_UNREACHABLE_MESSAGE);
+        }
+
+        return new YandexSmartHomeResponse.Payload.Device(
+                deviceId,
+                null,
+                null,
+                null,
+                null,
+                createCurrentCapabilityStates(snapshot),
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+    }
+
     /**
      * Handles device action requests.
-     * Processes commands to control devices from Yandex Smart Home.
+     * Processes commands to control devices from Yandex Smart Home. Every requested device
+     * gets its own result, so a failing receiver does not fail the actions of the others.
+     * Devices are processed in parallel. When the action timeout expires, the actions still waiting
+     * for a receiver are withdrawn and reported as not completed, while commands already running on
+     * a receiver are waited for, so every reported result matches what the receiver actually did.
      *
      * @param request the incoming request payload
      * @param requestId unique identifier for the request
@@ -158,61 +204,154 @@ public class YandexSmartHomeGateway {
                 return createErrorResponse(requestId, "No devices specified in action request");
             }
 
-            // Process actions for each device
-            for (YandexSmartHomeRequest.Payload.Device device : request.payload().devices()) {
-                if (stingrayDevice.serialNumber().equals(device.id())) {
-                    return processDeviceActions(device, requestId, userId);
+            List<YandexSmartHomeRequest.Payload.Device> requested = request.payload().devices();
+            List<Future<YandexSmartHomeResponse.Payload.Device>> results = new ArrayList<>(requested.size());
+            try (ParallelScope scope = new ParallelScope()) {
+                for (YandexSmartHomeRequest.Payload.Device device : requested) {
+                    results.add(scope.fork(() -> actOnDevice(device)));
                 }
+                scope.join(stingrayConfigurationProperties.getActionTimeout().plusSeconds(1));
+            } catch (TimeoutException e) {
+                log.warn("Actions did not complete within the action timeout for request {}", requestId);
             }
 
-            return createErrorResponse(requestId, "Device not found");
+            List<YandexSmartHomeResponse.Payload.Device> devices = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                Future<YandexSmartHomeResponse.Payload.Device> result = results.get(i);
+                devices.add(result.state() == Future.State.SUCCESS ? result.resultNow()
+                        : createActionError(requested.get(i).id(), DEVICE_UNREACHABLE, DEVICE_UNREACHABLE_MESSAGE));
+            }
 
+            return new YandexSmartHomeResponse(requestId, "ok", null, null,
+                    new YandexSmartHomeResponse.Payload(userId, devices));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return createErrorResponse(requestId, "Failed to execute device action");
         } catch (Exception e) {
             log.error("Error handling action request", e);
             return createErrorResponse(requestId, "Failed to execute device action");
         }
     }
 
+    /**
+     * Executes the actions of a single device.
+     *
+     * @param device the device to process actions for
+     * @return Device with action results, or a device error if the receiver is not discovered yet or unreachable
+     */
+    private YandexSmartHomeResponse.Payload.Device actOnDevice(YandexSmartHomeRequest.Payload.Device device) {
+        Receiver receiver = receiverRegistry.find(device.id()).orElse(null);
+        if (receiver == null) {
+            log.info("Receiver {} is not discovered yet, rejecting its actions", device.id());
+            return createActionError(device.id(), DEVICE_UNREACHABLE, DEVICE_UNREACHABLE_MESSAGE);
+        } else if (receiver.circuitBreaker().isFailingFast()) {
+            // Once the open duration has passed the action is let through as the probe
+            log.info("Receiver circuit is open, rejecting actions for device {}", device.id());
+            return createActionError(device.id(), DEVICE_UNREACHABLE, DEVICE_UNREACHABLE_MESSAGE);
+        }
+
+        try {
+            return processDeviceActions(receiver, device);
+        } catch (Exception e) {
+            log.error("Error executing actions for device {}", device.id(), e);
+            return createActionError(device.id(), INTERNAL_ERROR, "Failed to execute device action");
+        }
+    }
+
     /**
      * Processes actions for a specific device.
-     * Executes individual capability actions for the device.
+     * Every requested capability gets its own action result. Power-on runs first and power-off last,
+     * since the other actions only work on a receiver that is on, and the actions in between are
+     * independent of each other, so they run in parallel. Actions that were rejected while parsing
+     * or are not supported are not executed.
      *
+     * @param receiver the receiver the device belongs to
      * @param device the device to process actions for
-     * @param requestId unique identifier for the request
-     * @param userId identifier of the authenticated user
-     * @return YandexSmartHomeResponse with action execution results
+     * @return Device with the action result of every requested capability
      */
-    private YandexSmartHomeResponse processDeviceActions(YandexSmartHomeRequest.Payload.Device device,
-                                                         String requestId, String userId) {
-        boolean allActionsSuccessful = true;
-
-        if (device.capabilities() != null) {
-            for (Map<String, Object> capability : device.capabilities()) {
-                if (capability.containsKey("type") && capability.containsKey("state")) {
-                    String capabilityType = (String) capability.get("type");
-                    Object actionValue = capability.get("state");
-
-                    boolean actionResult = executeDeviceAction(capabilityType, actionValue);
-                    if (!actionResult) {
-                        allActionsSuccessful = false;
-                    }
-                }
+    private YandexSmartHomeResponse.Payload.Device processDeviceActions(Receiver receiver,
+                                                                        YandexSmartHomeRequest.Payload.Device device) {
+        List<CapabilityAction> actions = device.capabilities() != null ? device.capabilities() : List.of();
+        ActionResult[] results = new ActionResult[actions.size()];
+
+        List<Integer> powerOn = new ArrayList<>();
+        List<Integer> independent = new ArrayList<>();
+        List<Integer> powerOff = new ArrayList<>();
+        for (int i = 0; i < actions.size(); i++) {
+            CapabilityAction action = actions.get(i);
+            if (action instanceof CapabilityAction.Invalid invalid) {
+                log.warn("Rejected {} action for device {}: {}", invalid.type(), device.id(), invalid.errorMessage());
+                results[i] = new ActionResult(invalid.errorCode(), invalid.errorMessage());
+            } else if (!isSupported(action)) {
+                log.warn("Unsupported {} action for device {}: {}", action.type(), device.id(), action.instance());
+                results[i] = new ActionResult(INVALID_ACTION, "Unsupported capability instance: " + action.instance());
+            } else if (action instanceof CapabilityAction.OnOff onOff) {
+                (onOff.value() ? powerOn : powerOff).add(i);
+            } else {
+                independent.add(i);
             }
         }
 
-        if (allActionsSuccessful) {
-            return new YandexSmartHomeResponse(
-                    requestId,
-                    "ok",
-                    null,
-                    null,
-                    new YandexSmartHomeResponse.Payload(
-                            userId,
-                            List.of(createUpdatedDeviceState())
-                    )
-            );
+        boolean poweredOn = true;
+        for (int i : powerOn) {
+            results[i] = executeDeviceAction(receiver, actions.get(i));
+            poweredOn &= results[i].isDone();
+        }
+        if (poweredOn) {
+            executeInParallel(receiver, actions, independent, results);
         } else {
-            return createErrorResponse(requestId, "Some actions failed to execute");
+            for (int i : independent) {
+                results[i] = new ActionResult(INTERNAL_ERROR, "Receiver did not turn on");
+            }
+        }
+        for (int i : powerOff) {
+            results[i] = executeDeviceAction(receiver, actions.get(i));
+        }
+
+        return createActionResults(device.id(), actions, results);
+    }
+
+    /**
+     * Executes independent actions of a device at the same time.
+     * Actions that did not complete within the action timeout are interrupted, which withdraws
+     * their commands if they have not reached the receiver yet, and are reported as not completed.
+     * Actions that were already running on the receiver are reported with their real outcome.
+     *
+     * @param receiver the receiver to execute the actions on
+     * @param actions all actions of the device
+     * @param indexes positions of the actions to execute
+     * @param results action results by position, filled for the executed actions
+     */
+    private void executeInParallel(Receiver receiver, List<CapabilityAction> actions, List<Integer> indexes,
+                                   ActionResult[] results) {
+        if (Thread.currentThread().isInterrupted()) {
+            for (int i : indexes) {
+                results[i] = ActionResult.NOT_COMPLETED;
+            }
+            return;
+        }
+        if (indexes.size() == 1) {
+            results[indexes.getFirst()] = executeDeviceAction(receiver, actions.get(indexes.getFirst()));
+            return;
+        }
+
+        List<Future<ActionResult>> futures = new ArrayList<>(indexes.size());
+        try (ParallelScope scope = new ParallelScope()) {
+            for (int i : indexes) {
+                futures.add(scope.fork(() -> executeDeviceAction(receiver, actions.get(i))));
+            }
+            scope.join(stingrayConfigurationProperties.getActionTimeout());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Actions for device {} did not complete: {}", receiver.serialNumber(), e.toString());
+        }
+
+        for (int i = 0; i < indexes.size(); i++) {
+            Future<ActionResult> future = futures.get(i);
+            results[indexes.get(i)] = future.state() == Future.State.SUCCESS
+                    ? future.resultNow() : ActionResult.NOT_COMPLETED;
         }
     }
 
@@ -220,90 +359,118 @@ public class YandexSmartHomeGateway {
      * Executes a specific device action based on capability type.
      * Routes actions to appropriate handlers based on capability type.
      *
-     * @param capabilityType type of capability being executed
-     * @param actionValue value for the action
-     * @return true if action was successful, false otherwise
+     * @param receiver the receiver to execute the action on
+     * @param action the action to execute
+     * @return result of the action
      */
-    private boolean executeDeviceAction(String capabilityType, Object actionValue) {
+    private ActionResult executeDeviceAction(Receiver receiver, CapabilityAction action) {
+        if (Thread.currentThread().isInterrupted()) {
+            return ActionResult.NOT_COMPLETED;
+        }
+
         try {
-            if (actionValue instanceof Map) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> actionMap = (Map<String, Object>) actionValue;
-                String instance = (String) actionMap.get("instance");
-
-                return switch (capabilityType) {
-                    case "devices.capabilities.on_off" -> handlePowerAction(actionValue);
-                    case "devices.capabilities.range" -> handleRangeAction(instance, actionValue);
-                    case "devices.capabilities.toggle" -> handleToggleAction(instance);
-                    default -> {
-                        log.warn("Unsupported capability type: {}", capabilityType);
-                        yield false;
-                    }
-                };
+            boolean executed = switch (action) {
+                case CapabilityAction.OnOff onOff -> receiver.service().setPowerState(onOff.value());
+                case CapabilityAction.Range range -> handleRangeAction(receiver, range);
+                case CapabilityAction.Toggle toggle -> handleToggleAction(receiver, toggle.instance());
+                case CapabilityAction.Mode mode -> false;
+                case CapabilityAction.Invalid invalid -> false;
+            };
+            if (executed) {
+                return ActionResult.DONE;
             }
-            log.warn("Invalid action value format for capability: {}", capabilityType);
-            return false;
+            // Interrupted by the action timeout, the command was withdrawn before it reached the receiver
+            return Thread.currentThread().isInterrupted() ? ActionResult.NOT_COMPLETED
+                    : new ActionResult(INTERNAL_ERROR, "Failed to execute action");
         } catch (Exception e) {
-            log.error("Error executing device action for capability: {}", capabilityType, e);
-            return false;
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return ActionResult.NOT_COMPLETED;
+            }
+            log.error("Error executing device action for capability: {}", action.type(), e);
+            return new ActionResult(INTERNAL_ERROR, "Failed to execute action");
         }
     }
 
     /**
-     * Handles power state actions (on/off).
+     * Checks whether the receiver supports the capability instance of an action.
+     *
+     * @param action the action to check
+     * @return true if the action can be executed, false otherwise
+     */
+    private static boolean isSupported(CapabilityAction action) {
+        return switch (action) {
+            case CapabilityAction.OnOff onOff -> "on".equals(onOff.instance());
+            case CapabilityAction.Range range -> "volume".equals(range.instance()) || "channel".equals(range.instance());
+            case CapabilityAction.Toggle toggle -> "mute".equals(toggle.instance()) || "pause".equals(toggle.instance());
+            case CapabilityAction.Mode mode -> false;
+            case CapabilityAction.Invalid invalid -> false;
+        };
+    }
+
+    /**
+     * Handles range actions (volume, channel).
+     * Relative actions, e.g. "louder" or "next channel", are applied to the state known by the device shadow.
      *
-     * @param actionValue value for the power action
+     * @param receiver the receiver to execute the action on
+     * @param action range action with the instance (volume, channel) and value
      * @return true if action was successful, false otherwise
      */
-    private boolean handlePowerAction(Object actionValue) {
-        if (actionValue instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> actionMap = (Map<String, Object>) actionValue;
-            if (actionMap.containsKey("value")) {
-                boolean powerOn = Boolean.TRUE.equals(actionMap.get("value"));
-                return stingrayTVService.setPowerState(powerOn);
-            }
+    private boolean handleRangeAction(Receiver receiver, CapabilityAction.Range action) {
+        if (action.relative()) {
+            return handleRelativeRangeAction(receiver, action.instance(), action.value());
         }
-        return false;
+
+        return switch (action.instance()) {
+            case "volume" -> receiver.service().setVolume(action.value());
+            case "channel" -> receiver.service().changeChannel(action.value());
+            default -> {
+                log.warn("Unsupported range instance: {}", action.instance());
+                yield false;
+            }
+        };
     }
 
     /**
-     * Handles range actions (volume, channel).
+     * Handles relative range actions (volume, channel).
+     * The current value is taken from the device shadow, so no request to the device is needed
+     * before the change.
      *
+     * @param receiver the receiver to execute the action on
      * @param instance type of range action (volume, channel)
-     * @param actionValue value for the action
+     * @param delta change relative to the current value
      * @return true if action was successful, false otherwise
      */
-    private boolean handleRangeAction(String instance, Object actionValue) {
-        if (actionValue instanceof Map) {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> actionMap = (Map<String, Object>) actionValue;
-            if (actionMap.containsKey("value")) {
-                int value = ((Number) actionMap.get("value")).intValue();
-
-                return switch (instance) {
-                    case "volume" -> stingrayTVService.setVolume(value);
-                    case "channel" -> stingrayTVService.changeChannel(value);
-                    default -> {
-                        log.warn("Unsupported range instance: {}", instance);
-                        yield false;
-                    }
-                };
-            }
+    private boolean handleRelativeRangeAction(Receiver receiver, String instance, int delta) {
+        DeviceShadow.Snapshot snapshot = receiver.shadow().snapshot();
+        if (!snapshot.reachable()) {
+            log.warn("Device state is unknown, cannot apply relative {} change", instance);
+            return false;
         }
-        return false;
+
+        return switch (instance) {
+            case "volume" -> receiver.service().changeVolumeBy(delta, snapshot.volume(), snapshot.volumeMax());
+            case "channel" -> receiver.service().changeChannelBy(delta, snapshot.channelNumber());
+            default -> {
+                log.warn("Unsupported range instance: {}", instance);
+                yield false;
+            }
+        };
     }
 
     /**
      * Handles toggle actions (mute, pause).
      *
+     * @param receiver the receiver to execute the action on
      * @param instance type of toggle action (mute, pause)
      * @return true if action was successful, false otherwise
      */
-    private boolean handleToggleAction(String instance) {
+    private boolean handleToggleAction(Receiver receiver, String instance) {
         return switch (instance) {
-                    case "mute" -> stingrayTVService.mute();
-                    case "pause" -> stingrayTVService.pause();
+                    case "mute" -> receiver.service().mute();
+                    case "pause" -> receiver.service().pause();
                     default -> {
                         log.warn("Unsupported toggle instance: {}", instance);
                         yield false;
@@ -312,79 +479,117 @@ public class YandexSmartHomeGateway {
     }
 
     /**
-     * Creates the list of device capabilities.
-     * Defines what actions and properties this device supports.
+     * Creates the current capability states for device query requests.
+     * States are taken from the device shadow, so no request to the device is needed
+     * once the shadow has been populated by the background poller.
      *
-     * @return List of device capabilities
+     * @param snapshot device state snapshot of a reachable device
+     * @return List of current capability states
      */
-    private List<YandexSmartHomeResponse.Payload.Device.Capability> createDeviceCapabilities() {
+    private List<YandexSmartHomeResponse.Payload.Device.Capability> createCurrentCapabilityStates(
+            DeviceShadow.Snapshot snapshot) {
         return List.of(
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.on_off", true, null, null),
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", true,
-                        Map.of("instance", "volume", "unit", "unit.percent",
-                                "range", Map.of("min", 0, "max", 20, "precision", 1)), null),
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", true,
-                        Map.of("instance", "channel", "random_access", true,
-                                "range", Map.of("min", 0, "max", 9999, "precision", 1)), null),
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.toggle", false,
-                        Map.of("instance", "mute"), null),
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.toggle", false,
-                        Map.of("instance", "pause"), null)
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.on_off", false,
+                        null, Map.of("instance", "on", "value", snapshot.powerOn())),
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", false,
+                        null, Map.of("instance", "channel", "value", snapshot.channelNumber())),
+                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", false,
+                        null, Map.of("instance", "volume", "value", snapshot.volume()))
         );
     }
 
     /**
-     * Creates the current capability states for device query requests.
-     * Returns the current state of device capabilities.
+     * Creates the action results for action responses.
+     * Only the requested capabilities are reported, each with its own result. If an action cannot be
+     * attributed to a capability because its type is missing, the device result is the error instead.
      *
-     * @return List of current capability states
+     * @param deviceId ID of the device
+     * @param actions requested actions
+     * @param results action results by position
+     * @return Device with the action results
      */
-    private List<YandexSmartHomeResponse.Payload.Device.Capability> createCurrentCapabilityStates() {
-        StingrayTVService.PowerState powerState = stingrayTVService.getPowerState();
-        StingrayTVService.VolumeState volumeState = stingrayTVService.getVolumeState();
-        StingrayTVService.ChannelState channelState = stingrayTVService.getCurrentChannel();
+    private YandexSmartHomeResponse.Payload.Device createActionResults(String deviceId, List<CapabilityAction> actions,
+                                                                       ActionResult[] results) {
+        List<YandexSmartHomeResponse.Payload.Device.Capability> capabilities = new ArrayList<>(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            CapabilityAction action = actions.get(i);
+            if (action.type() == null) {
+                return createActionError(deviceId, results[i].errorCode(), results[i].errorMessage());
+            }
+            Map<String, Object> state = action.instance() != null
+                    ? Map.of("instance", action.instance(), "action_result", results[i].toMap())
+                    : Map.of("action_result", results[i].toMap());
+            capabilities.add(new YandexSmartHomeResponse.Payload.Device.Capability(action.type(), false, null, state));
+        }
 
-        return List.of(
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.on_off", false,
-                        null, Map.of("instance", "on", "value", "on".equals(powerState.state()))),
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", false,
-                        null, Map.of("instance", "channel", "value", channelState.channelNumber())),
-                new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", false,
-                        null, Map.of("instance", "volume", "value", volumeState.state()))
+        return new YandexSmartHomeResponse.Payload.Device(
+                deviceId,
+                null,
+                null,
+                null,
+                null,
+                capabilities,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
         );
     }
 
     /**
-     * Creates the updated device state for action responses.
-     * Returns the updated state after executing actions.
+     * Creates the query result for a device that cannot report its state.
      *
-     * @return Device state with action results
+     * @param deviceId ID of the device
+     * @param errorCode Yandex device error code
+     * @param errorMessage human readable error description
+     * @return Device with the error code
      */
-    private YandexSmartHomeResponse.Payload.Device createUpdatedDeviceState() {
+    private YandexSmartHomeResponse.Payload.Device createDeviceError(String deviceId, String errorCode,
+                                                                     String errorMessage) {
         return new YandexSmartHomeResponse.Payload.Device(
-                stingrayDevice.serialNumber(),
+                deviceId,
                 null,
                 null,
                 null,
                 null,
-                List.of(
-                        new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.on_off", false,
-                                null, Map.of("instance", "on", "action_result", Map.of("status", "DONE"))),
-                        new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", false,
-                                null, Map.of("instance", "channel", "action_result", Map.of("status", "DONE"))),
-                        new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.range", false,
-                                null, Map.of("instance", "volume", "action_result", Map.of("status", "DONE"))),
-                        new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.toggle", false,
-                                null, Map.of("instance", "mute", "action_result", Map.of("status", "DONE"))),
-                        new YandexSmartHomeResponse.Payload.Device.Capability("devices.capabilities.toggle", false,
-                                null, Map.of("instance", "pause", "action_result", Map.of("status", "DONE")))
-                ),
                 null,
                 null,
+                null,
+                null,
+                errorCode,
+                errorMessage,
                 null
         );
     }
 
+    /**
+     * Creates the failed action result for a device.
+     *
+     * @param deviceId ID of the device
+     * @param errorCode Yandex device error code
+     * @param errorMessage human readable error description
+     * @return Device state with a failed action result
+     */
+    private YandexSmartHomeResponse.Payload.Device createActionError(String deviceId, String errorCode,
+                                                                     String errorMessage) {
+        return new YandexSmartHomeResponse.Payload.Device(
+                deviceId,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                Map.of("status", "ERROR", "error_code", errorCode, "error_message", errorMessage)
+        );
+    }
+
     /**
      * Creates an error response for failed requests.
      *
@@ -397,24 +602,23 @@ public class YandexSmartHomeGateway {
     }
 
     /**
-     * Creates a StatusInfo object with the given status.
+     * Result of a single capability action.
      *
-     * @return A StatusInfo object with the given status.
+     * @param errorCode Yandex error code, null if the action was done
+     * @param errorMessage human readable error description, null if the action was done
      */
-    private YandexSmartHomeResponse.Payload.Device.StatusInfo createStatusInfo() {
-        return new YandexSmartHomeResponse.Payload.Device.StatusInfo(true);
-    }
+    private record ActionResult(String errorCode, String errorMessage) {
+        private static final ActionResult DONE = new ActionResult(null, null);
+        private static final ActionResult NOT_COMPLETED =
+                new ActionResult(DEVICE_UNREACHABLE, "Action did not complete in time");
 
-    /**
-     * Creates a DeviceInfo object with the given manufacturer, model, hwVersion, and swVersion.
-     *
-     * @param model     The model of the device.
-     * @param hwVersion The hardware version of the device.
-     * @param swVersion The software version of the device.
-     * @return DeviceInfo with the given manufacturer, model, hwVersion, and swVersion.
-     */
-    private YandexSmartHomeResponse.Payload.Device.DeviceInfo createDeviceInfo(String model, String hwVersion,
-                                                                               String swVersion) {
-        return new YandexSmartHomeResponse.Payload.Device.DeviceInfo("General Satellite", model, hwVersion, swVersion);
+        private boolean isDone() {
+            return errorCode == null;
+        }
+
+        private Map<String, Object> toMap() {
+            return isDone() ? Map.of("status", "DONE")
+                    : Map.of("status", "ERROR", "error_code", errorCode, "error_message", errorMessage);
+        }
     }
 }
\ No newline at end of file
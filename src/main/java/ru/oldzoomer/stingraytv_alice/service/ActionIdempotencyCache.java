@@ -0,0 +1,113 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
+
+/**
+ * Remembers device action responses by request, so that a request retried by Yandex
+ * is not executed on the receiver a second time. Toggles like mute or pause would
+ * otherwise flip back on every retry.
+ * A retry arriving while the first request is still running waits for its response,
+ * a retry arriving later gets the stored response. A retry waits at most the action timeout,
+ * then it reports the device as unreachable. Entries are bounded in size and expire after
+ * the configured time to live. Failed requests are not remembered.
+ */
+@Slf4j
+public class ActionIdempotencyCache {
+
+    private static final String DEVICE_UNREACHABLE = "DEVICE_UNREACHABLE";
+
+    private final ConcurrentMap<RequestKey, CompletableFuture<YandexSmartHomeResponse>> responses;
+    private final Duration actionTimeout;
+
+    /**
+     * @param maximumSize maximum number of remembered requests
+     * @param timeToLive how long a request is remembered after it started
+     * @param actionTimeout how long a retry waits for the response of the first request
+     */
+    public ActionIdempotencyCache(long maximumSize, Duration timeToLive, Duration actionTimeout) {
+        Cache<RequestKey, CompletableFuture<YandexSmartHomeResponse>> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+        this.responses = cache.asMap();
+        this.actionTimeout = actionTimeout;
+    }
+
+    /**
+     * Gets the response of a request, executing it only if the same request was not seen before.
+     *
+     * @param userId user the request belongs to
+     * @param requestId request ID sent by Yandex in X-Request-Id
+     * @param action executes the request on the receivers
+     * @return response of the first execution of the request
+     */
+    public YandexSmartHomeResponse execute(String userId, String requestId,
+                                           Supplier<YandexSmartHomeResponse> action) {
+        if (requestId == null) {
+            return action.get();
+        }
+
+        RequestKey key = new RequestKey(userId, requestId);
+        CompletableFuture<YandexSmartHomeResponse> pending = new CompletableFuture<>();
+        CompletableFuture<YandexSmartHomeResponse> existing = responses.putIfAbsent(key, pending);
+        if (existing != null) {
+            log.info("Repeated action request {} from user {}, returning the first response", requestId, userId);
+            return awaitFirstResponse(requestId, existing);
+        }
+
+        try {
+            YandexSmartHomeResponse response = action.get();
+            if ("error".equals(response.status())) {
+                // Nothing was done on the receivers, a retry may succeed
+                responses.remove(key, pending);
+            }
+            pending.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            responses.remove(key, pending);
+            pending.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private YandexSmartHomeResponse awaitFirstResponse(String requestId,
+                                                       CompletableFuture<YandexSmartHomeResponse> first) {
+        try {
+            return first.get(actionTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("First execution of action request {} did not complete within {}", requestId, actionTimeout);
+            return notCompleted(requestId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return notCompleted(requestId);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static YandexSmartHomeResponse notCompleted(String requestId) {
+        return new YandexSmartHomeResponse(requestId, "error", DEVICE_UNREACHABLE,
+                "Action did not complete in time", null);
+    }
+
+    /**
+     * Identifies a request, the request ID alone is only unique per user.
+     */
+    private record RequestKey(String userId, String requestId) {
+    }
+}
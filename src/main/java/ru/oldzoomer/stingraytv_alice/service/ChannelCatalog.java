@@ -0,0 +1,188 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+
+/**
+ * Catalog of the channels available on the StingrayTV device.
+ * Loaded from the device and refreshed in the background, so channel changes
+ * know the channel list ID and can validate channel numbers without extra requests.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ChannelCatalog {
+
+    private final RestClient restClient;
+    private final ReceiverEndpoint endpoint;
+    private final ReceiverCommandQueue commandQueue;
+
+    private volatile ChannelIndex index = ChannelIndex.EMPTY;
+    private volatile String restoredChannelListId;
+    private volatile int restoredMaxChannelNumber;
+
+    /**
+     * Reloads the channel list from the device.
+     * Keeps the previous catalog if the device cannot be reached.
+     */
+    public void refresh() {
+        try {
+            String baseUrl = endpoint.baseUrl();
+            if (baseUrl == null) {
+                log.warn("Device base URL is null, cannot load channel catalog");
+                return;
+            }
+
+            log.debug("Loading channel catalog from device at URL: {}", baseUrl + "/channels");
+            ChannelList response = commandQueue.execute(CommandPriority.BACKGROUND, () -> restClient.get()
+                    .uri(endpoint.baseUrl() + "/channels")
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .body(ChannelList.class));
+
+            if (response != null && response.channelListId() != null && response.channels() != null) {
+                index = ChannelIndex.of(response.channelListId(), response.channels());
+                log.info("Loaded channel catalog with {} channels (channel list ID: {})",
+                        index.size(), response.channelListId());
+            } else {
+                log.warn("Received empty channel catalog response, keeping previous catalog");
+            }
+        } catch (Exception e) {
+            log.error("Error loading channel catalog from StingrayTV device at URL: {}", endpoint.baseUrl(), e);
+        }
+    }
+
+    /**
+     * Restores what was known about the catalog before a restart.
+     * Used until the catalog has been loaded from the device.
+     *
+     * @param channelListId ID of the channel list, null if unknown
+     * @param maxChannelNumber highest channel number, 0 if unknown
+     */
+    public void restore(String channelListId, int maxChannelNumber) {
+        restoredChannelListId = channelListId;
+        restoredMaxChannelNumber = maxChannelNumber;
+    }
+
+    /**
+     * Checks whether the catalog has been loaded from the device.
+     *
+     * @return true if the catalog is loaded, false otherwise
+     */
+    public boolean isLoaded() {
+        return index != ChannelIndex.EMPTY;
+    }
+
+    /**
+     * Gets the ID of the channel list the catalog was loaded from.
+     *
+     * @return channel list ID, the restored ID if the catalog is not loaded, null if neither is known
+     */
+    public String channelListId() {
+        return isLoaded() ? index.channelListId() : restoredChannelListId;
+    }
+
+    /**
+     * Checks whether the channel number exists in the catalog.
+     *
+     * @param channelNumber channel number to check
+     * @return true if the channel exists, false otherwise
+     */
+    public boolean contains(int channelNumber) {
+        return index.find(channelNumber) != null;
+    }
+
+    /**
+     * Gets the catalog entry for the channel number.
+     *
+     * @param channelNumber channel number to look up
+     * @return channel entry, null if the channel does not exist
+     */
+    public Channel find(int channelNumber) {
+        return index.find(channelNumber);
+    }
+
+    /**
+     * Gets the channel that is a number of catalog positions away from the given channel.
+     * Stops at the first and the last channel of the catalog.
+     *
+     * @param channelNumber channel number to start from, does not have to be in the catalog
+     * @param steps number of positions to move, negative to move down
+     * @return channel number, or the start channel moved by steps if the catalog is not loaded
+     */
+    public int offset(int channelNumber, int steps) {
+        return index.offset(channelNumber, steps);
+    }
+
+    /**
+     * Gets the highest channel number in the catalog.
+     *
+     * @param fallback value returned if the catalog is neither loaded nor restored
+     * @return highest channel number, the restored number if the catalog is not loaded
+     */
+    public int maxChannelNumber(int fallback) {
+        if (index.size() > 0) {
+            return index.maxChannelNumber();
+        }
+        return restoredMaxChannelNumber > 0 ? restoredMaxChannelNumber : fallback;
+    }
+
+    /**
+     * Immutable index from channel number to channel entry.
+     * Channel numbers are kept in a sorted int array and looked up with a binary search,
+     * so lookups do not box the channel number.
+     */
+    private record ChannelIndex(String channelListId, int[] numbers, Channel[] channels) {
+        private static final ChannelIndex EMPTY = new ChannelIndex(null, new int[0], new Channel[0]);
+
+        private static ChannelIndex of(String channelListId, List<Channel> channelList) {
+            Channel[] channels = channelList.stream()
+                    .sorted(Comparator.comparingInt(Channel::channelNumber))
+                    .toArray(Channel[]::new);
+            int[] numbers = new int[channels.length];
+            for (int i = 0; i < channels.length; i++) {
+                numbers[i] = channels[i].channelNumber();
+            }
+            return new ChannelIndex(channelListId, numbers, channels);
+        }
+
+        private Channel find(int channelNumber) {
+            int position = Arrays.binarySearch(numbers, channelNumber);
+            return position >= 0 ? channels[position] : null;
+        }
+
+        private int offset(int channelNumber, int steps) {
+            if (numbers.length == 0) {
+                return Math.max(0, channelNumber + steps);
+            }
+            int position = Arrays.binarySearch(numbers, channelNumber);
+            if (position < 0) {
+                // Not in the catalog, start between the neighbouring channels
+                int insertion = -position - 1;
+                position = steps > 0 ? insertion - 1 : insertion;
+            }
+            return numbers[Math.clamp((long) position + steps, 0, numbers.length - 1)];
+        }
+
+        private int maxChannelNumber() {
+            return numbers[numbers.length - 1];
+        }
+
+        private int size() {
+            return numbers.length;
+        }
+    }
+
+    public record ChannelList(String channelListId, List<Channel> channels) {
+    }
+
+    public record Channel(int channelNumber, String channelName) {
+    }
+}
@@ -0,0 +1,234 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalesces bursts of commands that set an absolute value, such as volume or channel.
+ * The first command opens a short window, later commands in the window only replace the target
+ * value, and when the window closes only the newest target is sent to the device.
+ * Relative commands are applied on top of the pending target, so several steps in one window
+ * add up to a single absolute command. Every coalesced caller gets the result of that single send.
+ * Commands that are not coalesced call {@link #sendPending()} first, so they never overtake a target
+ * that is still waiting in its window.
+ */
+@Slf4j
+class CommandCoalescer {
+
+    private final String name;
+    private final LongSupplier windowMillis;
+    private final LongSupplier maxWaitMillis;
+    private final IntPredicate sender;
+
+    private Batch pending;
+    private final List<Batch> unsent = new ArrayList<>();
+
+    /**
+     * @param name name of the coalesced value, used for logging
+     * @param windowMillis length of the coalescing window, 0 or less sends every command directly
+     * @param maxWaitMillis how long a caller waits for the target to be sent after the window closed
+     * @param sender sends the target value to the device and returns whether it succeeded
+     */
+    CommandCoalescer(String name, LongSupplier windowMillis, LongSupplier maxWaitMillis, IntPredicate sender) {
+        this.name = name;
+        this.windowMillis = windowMillis;
+        this.maxWaitMillis = maxWaitMillis;
+        this.sender = sender;
+    }
+
+    /**
+     * Submits a target value and waits until it, or a newer target, has been sent.
+     *
+     * @param value target value
+     * @return true if the value that was finally sent was applied successfully
+     */
+    boolean submit(int value) {
+        return submit(value, target -> value);
+    }
+
+    /**
+     * Submits a change relative to the current value and waits until the resulting target,
+     * or a newer target, has been sent. If a target is already pending the change is applied
+     * to that target instead of the current value.
+     *
+     * @param current current value, known without asking the device
+     * @param update computes the new target from the current or the pending target
+     * @return true if the value that was finally sent was applied successfully
+     */
+    boolean submit(int current, IntUnaryOperator update) {
+        long window = windowMillis.getAsLong();
+        if (window <= 0) {
+            return sender.test(update.applyAsInt(current));
+        }
+
+        Batch batch;
+        synchronized (this) {
+            // The target is computed before a batch is published, so a failing update leaves no batch behind
+            int target = update.applyAsInt(pending != null ? pending.target : current);
+            if (pending == null) {
+                pending = new Batch();
+                pending.target = target;
+                unsent.add(pending);
+                Batch opened = pending;
+                Thread.ofVirtual().name("command-coalescer-" + name).start(() -> flush(opened, window));
+            } else {
+                log.debug("Coalescing {} command, replacing target {} with {}", name, pending.target, target);
+                pending.target = target;
+            }
+            pending.callers++;
+            batch = pending;
+        }
+        return await(batch, window);
+    }
+
+    /**
+     * Closes the windows of all targets that have not been sent yet and waits until they were sent.
+     * Called before a command that is not coalesced, so the device receives the commands in the order
+     * they were submitted. Waits at most as long as a coalesced caller would.
+     */
+    void sendPending() {
+        List<Batch> batches;
+        synchronized (this) {
+            batches = List.copyOf(unsent);
+        }
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        log.debug("Sending {} pending {} commands before a command that is not coalesced", batches.size(), name);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis.getAsLong());
+        for (Batch batch : batches) {
+            batch.due.countDown();
+        }
+        for (Batch batch : batches) {
+            try {
+                batch.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // The coalesced callers report the failure, the next command is sent anyway
+            } catch (TimeoutException e) {
+                log.warn("Pending {} {} was not sent before the next command", name, batch.target);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits for the result of a batch.
+     * A caller that is interrupted or gives up leaves the batch. When no caller is left, a batch that
+     * has not been sent yet is dropped, and the sending of a batch in flight is interrupted, which
+     * withdraws its command if it has not reached the device yet. An interrupted caller then waits for
+     * the outcome of the batch, so it never reports a failure for a value that was applied.
+     *
+     * @param batch batch the caller joined
+     * @param window length of the coalescing window
+     * @return true if the batch was sent successfully, false if it failed, was dropped or was not sent in time
+     */
+    private boolean await(Batch batch, long window) {
+        long timeout = window + maxWaitMillis.getAsLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return batch.result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    if (!interrupted) {
+                        interrupted = true;
+                        log.debug("Interrupted while waiting for {} command to be sent", name);
+                        leave(batch);
+                    }
+                } catch (TimeoutException e) {
+                    log.warn("{} command was not sent within {} ms", name, timeout);
+                    if (!interrupted) {
+                        leave(batch);
+                    }
+                    return false;
+                } catch (ExecutionException e) {
+                    log.warn("Failed to send {} command: {}", name, e.getCause().getMessage());
+                    return false;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized void leave(Batch batch) {
+        if (--batch.callers > 0 || batch.result.isDone()) {
+            return;
+        }
+
+        if (batch.sender == null) {
+            log.debug("Dropping {} {}, no caller is waiting for it any more", name, batch.target);
+            if (pending == batch) {
+                pending = null;
+            }
+            unsent.remove(batch);
+            batch.dropped = true;
+            batch.result.complete(false);
+        } else {
+            batch.sender.interrupt();
+        }
+    }
+
+    private void flush(Batch batch, long window) {
+        try {
+            // Returns early when a command that is not coalesced asks for the pending target
+            batch.due.await(window, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        int target;
+        int callers;
+        synchronized (this) {
+            if (batch.dropped) {
+                return;
+            }
+            if (pending == batch) {
+                pending = null;
+            }
+            batch.sender = Thread.currentThread();
+            target = batch.target;
+            callers = batch.callers;
+        }
+
+        if (callers > 1) {
+            log.debug("Sending {} {} on behalf of {} coalesced commands", name, target, callers);
+        }
+
+        try {
+            batch.result.complete(sender.test(target));
+        } catch (Exception e) {
+            batch.result.completeExceptionally(e);
+        } finally {
+            synchronized (this) {
+                unsent.remove(batch);
+            }
+        }
+    }
+
+    private static final class Batch {
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private final CountDownLatch due = new CountDownLatch(1);
+        private int target;
+        private int callers;
+        private boolean dropped;
+        private Thread sender;
+    }
+}
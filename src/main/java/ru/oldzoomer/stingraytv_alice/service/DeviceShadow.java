@@ -0,0 +1,400 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+import ru.oldzoomer.stingraytv_alice.util.ParallelScope;
+
+/**
+ * Shadow model of the StingrayTV device state.
+ * A background poller keeps the model current, and successful actions update it right away,
+ * so queries are answered from memory. Readers get immutable snapshots without locking.
+ * The poll interval adapts to the device: short right after an action, longer while the device
+ * is on, long while it is in standby, and backing off exponentially while it is unreachable.
+ * Background polls go through the background lane of the command queue, so they never delay user commands.
+ * A poll is queued as a single command that reads power, volume and channel concurrently, so the reads
+ * are not serialized by the single queue worker.
+ */
+@Slf4j
+public class DeviceShadow {
+
+    private final StingrayTVService stingrayTVService;
+    private final ReceiverCommandQueue commandQueue;
+    private final StingrayConfigurationProperties stingrayProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicReference<CompletableFuture<Snapshot>> firstPoll = new AtomicReference<>();
+    private final AtomicLong actionVersion = new AtomicLong();
+    private final Semaphore wakeUp = new Semaphore(0);
+
+    private final long activeIntervalMillis;
+    private final long activeWindowMillis;
+    private final long onIntervalMillis;
+    private final long standbyIntervalMillis;
+    private final long maxBackoffMillis;
+
+    private volatile long lastActionAt;
+    private volatile boolean running;
+    private long backoffMillis;
+    private Thread poller;
+
+    /**
+     * @param stingrayTVService service reading the device state
+     * @param commandQueue command queue of the device
+     * @param stingrayProperties StingrayTV configuration
+     * @param eventPublisher publisher for state change events
+     * @param activeIntervalMillis poll interval right after an action
+     * @param activeWindowMillis how long the active interval is used after an action
+     * @param onIntervalMillis poll interval while the device is on
+     * @param standbyIntervalMillis poll interval while the device is in standby
+     * @param maxBackoffMillis longest poll interval while the device is unreachable
+     */
+    public DeviceShadow(StingrayTVService stingrayTVService,
+                        ReceiverCommandQueue commandQueue,
+                        StingrayConfigurationProperties stingrayProperties,
+                        ApplicationEventPublisher eventPublisher,
+                        long activeIntervalMillis,
+                        long activeWindowMillis,
+                        long onIntervalMillis,
+                        long standbyIntervalMillis,
+                        long maxBackoffMillis) {
+        this.stingrayTVService = stingrayTVService;
+        this.commandQueue = commandQueue;
+        this.stingrayProperties = stingrayProperties;
+        this.eventPublisher = eventPublisher;
+        this.activeIntervalMillis = activeIntervalMillis;
+        this.activeWindowMillis = activeWindowMillis;
+        this.onIntervalMillis = onIntervalMillis;
+        this.standbyIntervalMillis = standbyIntervalMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.backoffMillis = onIntervalMillis;
+    }
+
+    /**
+     * Starts the background poller.
+     */
+    public void start() {
+        running = true;
+        poller = Thread.ofVirtual().name("device-shadow-poller-" + stingrayTVService.serialNumber())
+                .start(this::pollLoop);
+    }
+
+    /**
+     * Stops the background poller.
+     */
+    public void stop() {
+        running = false;
+        if (poller != null) {
+            poller.interrupt();
+        }
+    }
+
+    /**
+     * Gets the latest device state snapshot.
+     * Only polls the device if no snapshot has been taken yet. Concurrent callers share that poll.
+     *
+     * @return latest device state snapshot
+     */
+    public Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        CompletableFuture<Snapshot> polling = new CompletableFuture<>();
+        CompletableFuture<Snapshot> inFlight = firstPoll.compareAndExchange(null, polling);
+        if (inFlight != null) {
+            return awaitFirstPoll(inFlight);
+        }
+
+        try {
+            Snapshot polled = poll(false);
+            polling.complete(polled);
+            return polled;
+        } catch (RuntimeException e) {
+            polling.completeExceptionally(e);
+            throw e;
+        } finally {
+            firstPoll.compareAndSet(polling, null);
+        }
+    }
+
+    private static Snapshot awaitFirstPoll(CompletableFuture<Snapshot> polling) {
+        try {
+            return polling.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Snapshot.unreachable(null);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Records a command that has been applied to the device.
+     * Coalesced commands are reported once, with the value that was actually sent.
+     *
+     * @param event applied command
+     */
+    public void onCommandApplied(StingrayTVService.CommandAppliedEvent event) {
+        switch (event.command()) {
+            case POWER_ON -> onPowerChanged(true);
+            case POWER_OFF -> onPowerChanged(false);
+            case VOLUME -> onVolumeChanged(event.value());
+            case CHANNEL -> onChannelChanged(event.value());
+            case MUTE -> onMuteToggled();
+            case PAUSE, KEYS -> onAction();
+        }
+    }
+
+    /**
+     * Records a successful power change.
+     *
+     * @param powerOn true if the device was turned on, false otherwise
+     */
+    public void onPowerChanged(boolean powerOn) {
+        applyAction(snapshot -> snapshot.withPower(powerOn));
+    }
+
+    /**
+     * Records a successful volume change.
+     *
+     * @param volume new volume level
+     */
+    public void onVolumeChanged(int volume) {
+        applyAction(snapshot -> snapshot.withVolume(volume));
+    }
+
+    /**
+     * Records a successful channel change.
+     *
+     * @param channelNumber new channel number
+     */
+    public void onChannelChanged(int channelNumber) {
+        applyAction(snapshot -> snapshot.withChannel(channelNumber));
+    }
+
+    /**
+     * Records a successful mute toggle.
+     * The device does not report its mute state, so it is only tracked here.
+     */
+    public void onMuteToggled() {
+        applyAction(snapshot -> snapshot.withMuted(!snapshot.muted()));
+    }
+
+    /**
+     * Records a successful action that does not change the modelled state.
+     */
+    public void onAction() {
+        applyAction(UnaryOperator.identity());
+    }
+
+    /**
+     * Reads power, volume and channel from the device concurrently and publishes a new snapshot.
+     * A poll that overlaps with an action is not published, because it may have read the
+     * state from before the action. Changes made outside this service, e.g. with the remote,
+     * are published as {@link StateChangedEvent}.
+     * Only a failing device marks the snapshot unreachable. A poll that expired in the command queue
+     * or was interrupted keeps the previous snapshot, and the next poll is scheduled as usual.
+     *
+     * @param background whether the poll goes through the background lane of the command queue
+     * @return the published snapshot, or the current one if the poll was discarded or not sent
+     */
+    Snapshot poll(boolean background) {
+        long versionAtStart = actionVersion.get();
+        Snapshot previous = current.get();
+        Snapshot polled;
+
+        try {
+            polled = background
+                    ? commandQueue.execute(CommandPriority.BACKGROUND, () -> readStateOrUnreachable(previous))
+                    : readStateOrUnreachable(previous);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.debug("Device state poll was interrupted, keeping the previous snapshot");
+            return previous != null ? previous : Snapshot.unreachable(null);
+        } catch (Exception e) {
+            // Failures of the device are already turned into an unreachable snapshot, this is the queue
+            log.debug("Device state poll was not sent: {}", e.getMessage());
+            return previous != null ? previous : Snapshot.unreachable(null);
+        }
+
+        if (actionVersion.get() != versionAtStart) {
+            log.debug("Discarding device state poll that overlapped with an action");
+            Snapshot snapshot = current.get();
+            return snapshot != null ? snapshot : polled;
+        }
+
+        current.set(polled);
+        if (previous != null && polled.reachable() && !polled.sameStateAs(previous)) {
+            eventPublisher.publishEvent(new StateChangedEvent(stingrayTVService.serialNumber(), previous, polled));
+        }
+        return polled;
+    }
+
+    /**
+     * Reads the device state, turning a failure of the device into an unreachable snapshot.
+     *
+     * @param previous current snapshot, used for the values that could not be read
+     * @return snapshot of the state that was read, unreachable if the device failed
+     * @throws InterruptedException if the reads were interrupted
+     */
+    private Snapshot readStateOrUnreachable(Snapshot previous) throws InterruptedException {
+        try {
+            return readState(previous);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Failed to poll device state: {}", e.getMessage());
+            return Snapshot.unreachable(previous);
+        }
+    }
+
+    /**
+     * Reads power, volume and channel from the device concurrently.
+     *
+     * @param previous current snapshot, used for the values that could not be read
+     * @return snapshot of the state that was read
+     * @throws Exception if a read failed or the reads did not complete within the query timeout
+     */
+    private Snapshot readState(Snapshot previous) throws Exception {
+        try (ParallelScope scope = new ParallelScope()) {
+            Future<StingrayTVService.PowerState> power = scope.fork(stingrayTVService::fetchPowerState);
+            Future<StingrayTVService.VolumeState> volume = scope.fork(stingrayTVService::fetchVolumeState);
+            Future<StingrayTVService.ChannelState> channel = scope.fork(stingrayTVService::fetchCurrentChannel);
+
+            scope.join(stingrayProperties.getQueryTimeout());
+
+            return Snapshot.of(previous, power.resultNow(), volume.resultNow(), channel.resultNow());
+        }
+    }
+
+    private void applyAction(UnaryOperator<Snapshot> update) {
+        actionVersion.incrementAndGet();
+        lastActionAt = System.currentTimeMillis();
+        current.updateAndGet(snapshot -> snapshot != null ? update.apply(snapshot) : null);
+        wakeUp.release();
+    }
+
+    private void pollLoop() {
+        log.info("Device shadow poller started");
+        while (running) {
+            Snapshot snapshot = poll(true);
+            long interval = nextInterval(snapshot);
+            log.debug("Next device state poll in {} ms", interval);
+
+            try {
+                if (wakeUp.tryAcquire(interval, TimeUnit.MILLISECONDS)) {
+                    // An action happened, let the device apply it before polling
+                    Thread.sleep(activeIntervalMillis);
+                    wakeUp.drainPermits();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("Device shadow poller stopped");
+    }
+
+    private long nextInterval(Snapshot snapshot) {
+        if (!snapshot.reachable()) {
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+            return backoffMillis;
+        }
+
+        backoffMillis = onIntervalMillis;
+        if (System.currentTimeMillis() - lastActionAt < activeWindowMillis) {
+            return activeIntervalMillis;
+        }
+        return snapshot.powerOn() ? onIntervalMillis : standbyIntervalMillis;
+    }
+
+    /**
+     * Immutable snapshot of the device state.
+     *
+     * @param reachable whether the device answered the last poll
+     * @param powerOn whether the device is on
+     * @param volume current volume level
+     * @param volumeMax maximum volume level
+     * @param muted whether the sound is muted, as far as this service knows
+     * @param channelNumber current channel number
+     * @param updatedAt time of the last update
+     */
+    public record Snapshot(boolean reachable, boolean powerOn, int volume, int volumeMax, boolean muted,
+                           int channelNumber, Instant updatedAt) {
+
+        private static Snapshot of(Snapshot previous, StingrayTVService.PowerState power,
+                                   StingrayTVService.VolumeState volume, StingrayTVService.ChannelState channel) {
+            if (power == null) {
+                return unreachable(previous);
+            }
+
+            Snapshot base = previous != null ? previous : new Snapshot(true, false, 0, 20, false, 0, Instant.now());
+            return new Snapshot(true,
+                    "on".equals(power.state()),
+                    volume != null ? volume.state() : base.volume(),
+                    volume != null ? volume.max() : base.volumeMax(),
+                    base.muted(),
+                    channel != null ? channel.channelNumber() : base.channelNumber(),
+                    Instant.now());
+        }
+
+        private static Snapshot unreachable(Snapshot previous) {
+            if (previous == null) {
+                return new Snapshot(false, false, 0, 20, false, 0, Instant.now());
+            }
+            return new Snapshot(false, previous.powerOn(), previous.volume(), previous.volumeMax(),
+                    previous.muted(), previous.channelNumber(), Instant.now());
+        }
+
+        /**
+         * Compares the reported state, ignoring reachability and update time.
+         */
+        public boolean sameStateAs(Snapshot other) {
+            return powerOn == other.powerOn() && volume == other.volume() && channelNumber == other.channelNumber();
+        }
+
+        private Snapshot withPower(boolean powerOn) {
+            return new Snapshot(true, powerOn, volume, volumeMax, muted, channelNumber, Instant.now());
+        }
+
+        private Snapshot withVolume(int volume) {
+            return new Snapshot(true, powerOn, volume, volumeMax, false, channelNumber, Instant.now());
+        }
+
+        private Snapshot withChannel(int channelNumber) {
+            return new Snapshot(true, powerOn, volume, volumeMax, muted, channelNumber, Instant.now());
+        }
+
+        private Snapshot withMuted(boolean muted) {
+            return new Snapshot(true, powerOn, volume, volumeMax, muted, channelNumber, Instant.now());
+        }
+    }
+
+    /**
+     * Event published when a poll detects a state change that was not made through this service.
+     *
+     * @param serialNumber serial number of the device
+     * @param previous snapshot before the change
+     * @param current snapshot after the change
+     */
+    public record StateChangedEvent(String serialNumber, Snapshot previous, Snapshot current) {
+    }
+}
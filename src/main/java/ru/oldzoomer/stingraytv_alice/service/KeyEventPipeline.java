@@ -0,0 +1,106 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+import ru.oldzoomer.stingraytv_alice.enums.ReceiverCommand;
+
+/**
+ * Sends sequences of remote control key events to the StingrayTV device.
+ * A sequence is queued as a single command, so its keys are sent back to back over the same
+ * pooled connection and no other command can interleave with them. Keys are spaced by a
+ * configurable delay, because the device drops key presses that follow each other too closely.
+ * Key events toggle the device state, so they are never retried.
+ */
+@Slf4j
+public class KeyEventPipeline {
+
+    private final RestClient restClient;
+    private final ReceiverEndpoint endpoint;
+    private final ReceiverCommandQueue commandQueue;
+    private final ReceiverCircuitBreaker circuitBreaker;
+    private final ReceiverRetryPolicy retryPolicy;
+    private final Duration keySpacing;
+
+    /**
+     * @param restClient client of the receiver
+     * @param endpoint address of the receiver the keys are sent to
+     * @param commandQueue command queue of the receiver
+     * @param circuitBreaker circuit breaker of the receiver
+     * @param retryPolicy retry policy of the receiver
+     * @param keySpacingMillis delay between two keys of a sequence
+     */
+    public KeyEventPipeline(RestClient restClient,
+                            ReceiverEndpoint endpoint,
+                            ReceiverCommandQueue commandQueue,
+                            ReceiverCircuitBreaker circuitBreaker,
+                            ReceiverRetryPolicy retryPolicy,
+                            long keySpacingMillis) {
+        this.restClient = restClient;
+        this.endpoint = endpoint;
+        this.commandQueue = commandQueue;
+        this.circuitBreaker = circuitBreaker;
+        this.retryPolicy = retryPolicy;
+        this.keySpacing = Duration.ofMillis(keySpacingMillis);
+    }
+
+    /**
+     * Sends a sequence of key events to the device.
+     * Stops at the first key that fails, the keys before it have already been applied.
+     *
+     * @param keys key names, e.g. "Volume Mute", "Pause" or "1"
+     * @return true if all keys were sent, false otherwise
+     */
+    public boolean send(List<String> keys) {
+        if (keys.isEmpty()) {
+            return true;
+        }
+
+        try {
+            String baseUrl = endpoint.baseUrl();
+            if (baseUrl == null) {
+                log.warn("Device base URL is null, cannot send key events");
+                return false;
+            }
+
+            log.debug("Sending {} key events to device at URL: {}", keys.size(), baseUrl + "/input/events");
+            commandQueue.execute(CommandPriority.USER, () -> {
+                for (int i = 0; i < keys.size(); i++) {
+                    if (i > 0 && keySpacing.isPositive()) {
+                        Thread.sleep(keySpacing);
+                    }
+                    sendKey(keys.get(i));
+                }
+                return null;
+            });
+
+            log.info("Successfully sent key events {} to device at URL: {}", keys, baseUrl);
+            return true;
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not sending key events");
+            return false;
+        } catch (InterruptedException e) {
+            log.warn("Key events {} were interrupted before all of them reached the device", keys);
+            return false;
+        } catch (Exception e) {
+            log.error("Error sending key events {} to StingrayTV device at URL: {}", keys, endpoint.baseUrl(), e);
+            return false;
+        }
+    }
+
+    private void sendKey(String key) throws Exception {
+        Map<String, String> requestBody = Map.of("key", key);
+        retryPolicy.execute(ReceiverCommand.KEYS, () -> circuitBreaker.call(() -> restClient.post()
+                .uri(endpoint.baseUrl() + "/input/events")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(requestBody)
+                .retrieve()
+                .toBodilessEntity()));
+    }
+}
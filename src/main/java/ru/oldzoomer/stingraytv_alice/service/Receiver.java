@@ -0,0 +1,61 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.io.IOException;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.config.ReceiverClientFactory;
+
+/**
+ * A StingrayTV receiver known to the application, together with everything used to talk to it.
+ * Every receiver has its own connection pool, command queue, circuit breaker and shadow,
+ * so receivers do not slow each other down.
+ *
+ * @param endpoint current address of the receiver
+ * @param client HTTP client of the receiver
+ * @param commandQueue single-writer command queue of the receiver
+ * @param circuitBreaker circuit breaker of the receiver
+ * @param channelCatalog channel catalog of the receiver
+ * @param service service controlling the receiver
+ * @param shadow device shadow of the receiver
+ */
+@Slf4j
+public record Receiver(ReceiverEndpoint endpoint,
+                       ReceiverClientFactory.ReceiverClient client,
+                       ReceiverCommandQueue commandQueue,
+                       ReceiverCircuitBreaker circuitBreaker,
+                       ChannelCatalog channelCatalog,
+                       StingrayTVService service,
+                       DeviceShadow shadow) implements AutoCloseable {
+
+    /**
+     * Gets the receiver as it was last resolved by discovery.
+     *
+     * @return discovered device
+     */
+    public StingrayDeviceDiscoveryService.Device device() {
+        return endpoint.device();
+    }
+
+    /**
+     * Gets the serial number of the receiver, which is also its Yandex device ID.
+     *
+     * @return receiver serial number
+     */
+    public String serialNumber() {
+        return endpoint.serialNumber();
+    }
+
+    /**
+     * Stops the shadow poller and the command queue and closes the connection pool.
+     */
+    @Override
+    public void close() {
+        shadow.stop();
+        commandQueue.shutdown();
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.warn("Failed to close connection pool of receiver {}: {}", serialNumber(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.enums.CircuitState;
+
+/**
+ * Circuit breaker for requests to the StingrayTV receiver.
+ * Opens after a number of consecutive failures, so requests fail fast instead of waiting for
+ * the connect or read timeout while the receiver is offline. Once the open duration has passed,
+ * a single probe request is let through: its success closes the circuit, its failure opens it again.
+ */
+@Slf4j
+public class ReceiverCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    /**
+     * @param meterRegistry registry for circuit metrics
+     * @param receiverId receiver the circuit protects, used as the metrics tag
+     * @param failureThreshold consecutive failures that open the circuit
+     * @param openDurationMillis how long the circuit stays open before a probe is let through
+     */
+    public ReceiverCircuitBreaker(MeterRegistry meterRegistry, String receiverId,
+                                  int failureThreshold, long openDurationMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDurationMillis);
+
+        Gauge.builder("stingray.receiver.circuit.open", this, breaker -> breaker.isOpen() ? 1 : 0)
+                .description("Whether requests to the receiver are failing fast")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends a request to the receiver through the circuit breaker.
+     * Connection failures, timeouts and server errors count as failures. Any other outcome means
+     * the receiver answered and counts as a success.
+     *
+     * @param request request to send
+     * @return request result
+     * @throws ReceiverUnavailableException if the circuit is open and the request was not sent
+     * @throws Exception the exception thrown by the request
+     */
+    public <T> T call(Callable<T> request) throws Exception {
+        if (!tryAcquire()) {
+            throw new ReceiverUnavailableException("Receiver circuit is open");
+        }
+
+        boolean failed = true;
+        try {
+            T result = request.call();
+            failed = false;
+            return result;
+        } catch (Exception e) {
+            failed = isReceiverFailure(e);
+            throw e;
+        } finally {
+            if (failed) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+        }
+    }
+
+    /**
+     * Checks whether requests to the receiver are currently failing fast.
+     * This is also the case while the single probe request is in flight.
+     *
+     * @return true if the circuit is not closed, false otherwise
+     */
+    public synchronized boolean isOpen() {
+        return state != CircuitState.CLOSED;
+    }
+
+    /**
+     * Checks whether a request to the receiver would be rejected right now.
+     * Unlike {@link #isOpen()} this is false once the open duration has passed,
+     * since the next request is then let through as the probe.
+     *
+     * @return true if the circuit is open and not due for a probe, or a probe is in flight
+     */
+    public synchronized boolean isFailingFast() {
+        return switch (state) {
+            case CLOSED -> false;
+            case OPEN -> System.nanoTime() - openedAt < openDurationNanos;
+            case HALF_OPEN -> true;
+        };
+    }
+
+    /**
+     * Gets the current circuit state.
+     *
+     * @return current circuit state
+     */
+    public synchronized CircuitState state() {
+        return state;
+    }
+
+    /**
+     * Closes the circuit and forgets the failures counted so far.
+     * Used when the receiver has been found at a new address, so the failures
+     * at the old address do not keep requests failing fast.
+     */
+    public synchronized void reset() {
+        if (state != CircuitState.CLOSED) {
+            log.info("Receiver moved, closing circuit");
+        }
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    private synchronized boolean tryAcquire() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if (System.nanoTime() - openedAt < openDurationNanos) {
+                    yield false;
+                }
+                log.info("Probing receiver after circuit was open for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAt));
+                state = CircuitState.HALF_OPEN;
+                yield true;
+            }
+            // Only one probe request at a time
+            case HALF_OPEN -> false;
+        };
+    }
+
+    private synchronized void onSuccess() {
+        if (state != CircuitState.CLOSED) {
+            log.info("Receiver answered, closing circuit");
+        }
+        state = CircuitState.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == CircuitState.HALF_OPEN
+                || (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("Opening receiver circuit after {} consecutive failures", consecutiveFailures);
+            state = CircuitState.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    private boolean isReceiverFailure(Exception e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+}
@@ -0,0 +1,265 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+
+/**
+ * Single-writer command queue for the StingrayTV device.
+ * Commands are executed one at a time by a single worker thread, user commands before
+ * background reads and in submission order within a lane. Commands that waited in the queue
+ * longer than their lane allows are dropped instead of being sent to the device, and a caller
+ * that gives up on a command withdraws it, so it is never sent after the caller reported a failure.
+ */
+@Slf4j
+public class ReceiverCommandQueue {
+
+    private final PriorityBlockingQueue<Command<?>> queue = new PriorityBlockingQueue<>(16,
+            Comparator.<Command<?>, CommandPriority>comparing(Command::priority).thenComparingLong(Command::sequence));
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<CommandPriority, AtomicInteger> depth = new EnumMap<>(CommandPriority.class);
+    private final Map<CommandPriority, Timer> waitTime = new EnumMap<>(CommandPriority.class);
+    private final Map<CommandPriority, Counter> expired = new EnumMap<>(CommandPriority.class);
+    private final Map<CommandPriority, Long> maxAgeNanos = new EnumMap<>(CommandPriority.class);
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * @param meterRegistry registry for queue metrics
+     * @param receiverId receiver the queue sends commands to, used as the metrics tag
+     * @param userCommandTtlMillis how long user commands may wait in the queue
+     * @param backgroundTtlMillis how long background reads may wait in the queue
+     */
+    public ReceiverCommandQueue(MeterRegistry meterRegistry, String receiverId,
+                                long userCommandTtlMillis, long backgroundTtlMillis) {
+        maxAgeNanos.put(CommandPriority.USER, TimeUnit.MILLISECONDS.toNanos(userCommandTtlMillis));
+        maxAgeNanos.put(CommandPriority.BACKGROUND, TimeUnit.MILLISECONDS.toNanos(backgroundTtlMillis));
+
+        for (CommandPriority priority : CommandPriority.values()) {
+            String lane = priority.name().toLowerCase();
+            AtomicInteger laneDepth = new AtomicInteger();
+            depth.put(priority, laneDepth);
+            Gauge.builder("stingray.receiver.queue.depth", laneDepth, AtomicInteger::get)
+                    .description("Commands waiting for the receiver")
+                    .tag("lane", lane)
+                    .tag("receiver", receiverId)
+                    .register(meterRegistry);
+            waitTime.put(priority, Timer.builder("stingray.receiver.queue.wait")
+                    .description("Time commands spend waiting for the receiver")
+                    .tag("lane", lane)
+                    .tag("receiver", receiverId)
+                    .register(meterRegistry));
+            expired.put(priority, Counter.builder("stingray.receiver.queue.expired")
+                    .description("Commands dropped because they waited too long")
+                    .tag("lane", lane)
+                    .tag("receiver", receiverId)
+                    .register(meterRegistry));
+        }
+
+        worker = Thread.ofVirtual().name("receiver-command-queue-" + receiverId).start(this::processCommands);
+    }
+
+    /**
+     * Queues a command for the device.
+     *
+     * @param priority lane of the command
+     * @param command command to run against the device
+     * @return future completed with the command result, or with a {@link TimeoutException}
+     *         if the command expired in the queue
+     */
+    public <T> CompletableFuture<T> submit(CommandPriority priority, Callable<T> command) {
+        return enqueue(priority, command).result();
+    }
+
+    /**
+     * Queues a command for the device and waits for its result.
+     * If the command does not start within the time its lane may wait, or the caller is interrupted
+     * before it started, it is withdrawn from the queue. A command that has already started is waited
+     * for, so the caller always gets the outcome of a command that reached the device.
+     *
+     * @param priority lane of the command
+     * @param command command to run against the device
+     * @return command result
+     * @throws Exception the exception thrown by the command, {@link TimeoutException} if it expired,
+     *         {@link InterruptedException} if it was withdrawn because the caller was interrupted,
+     *         in which case the interrupt status of the caller is kept
+     */
+    public <T> T execute(CommandPriority priority, Callable<T> command) throws Exception {
+        Command<T> queued = enqueue(priority, command);
+        try {
+            try {
+                return queued.result().get(queued.deadline() - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (withdraw(queued)) {
+                    expired.get(priority).increment();
+                    throw new TimeoutException("Command expired in receiver queue");
+                }
+                // Already sent to the device, its outcome is what the caller gets
+                return queued.result().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (withdraw(queued)) {
+                    throw e;
+                }
+                log.debug("Interrupted while a {} command was running, waiting for its outcome", priority);
+                return awaitOutcome(queued);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for a command that has already started without reacting to interrupts,
+     * which are restored once the command completed.
+     *
+     * @param command running command
+     * @return command result
+     * @throws ExecutionException if the command failed
+     */
+    private static <T> T awaitOutcome(Command<T> command) throws ExecutionException {
+        boolean interrupted = Thread.interrupted();
+        try {
+            while (true) {
+                try {
+                    return command.result().get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Stops the worker thread. Queued commands are not executed, they complete with
+     * a {@link RejectedExecutionException} instead.
+     */
+    public void shutdown() {
+        closed = true;
+        worker.interrupt();
+
+        List<Command<?>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (Command<?> command : remaining) {
+            depth.get(command.priority()).decrementAndGet();
+            reject(command);
+        }
+    }
+
+    private <T> Command<T> enqueue(CommandPriority priority, Callable<T> command) {
+        long enqueuedAt = System.nanoTime();
+        Command<T> queued = new Command<>(priority, sequence.incrementAndGet(), enqueuedAt,
+                enqueuedAt + maxAgeNanos.get(priority), command, new CompletableFuture<>(), new AtomicBoolean());
+        if (closed) {
+            reject(queued);
+            return queued;
+        }
+
+        depth.get(priority).incrementAndGet();
+        queue.add(queued);
+        if (closed && withdraw(queued)) {
+            // Shut down while the command was being queued
+            reject(queued);
+        }
+        return queued;
+    }
+
+    /**
+     * Removes a command that has not started yet from the queue.
+     *
+     * @param command queued command
+     * @return true if the command was withdrawn and will never run, false if it has already started
+     */
+    private boolean withdraw(Command<?> command) {
+        if (!command.claim()) {
+            return false;
+        }
+        if (queue.remove(command)) {
+            depth.get(command.priority()).decrementAndGet();
+        }
+        return true;
+    }
+
+    private static void reject(Command<?> command) {
+        command.claim();
+        command.result().completeExceptionally(new RejectedExecutionException("Receiver command queue is shut down"));
+    }
+
+    private void processCommands() {
+        while (!closed && !Thread.currentThread().isInterrupted()) {
+            Command<?> command;
+            try {
+                command = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            depth.get(command.priority()).decrementAndGet();
+            if (command.result().isDone() || !command.claim()) {
+                // Withdrawn or cancelled by the caller
+                continue;
+            }
+
+            long startedAt = System.nanoTime();
+            waitTime.get(command.priority()).record(startedAt - command.enqueuedAt(), TimeUnit.NANOSECONDS);
+
+            if (startedAt > command.deadline()) {
+                log.warn("Dropping {} command that waited {} ms for the receiver", command.priority(),
+                        TimeUnit.NANOSECONDS.toMillis(startedAt - command.enqueuedAt()));
+                expired.get(command.priority()).increment();
+                command.result().completeExceptionally(new TimeoutException("Command expired in receiver queue"));
+                continue;
+            }
+
+            command.run();
+        }
+    }
+
+    private record Command<T>(CommandPriority priority, long sequence, long enqueuedAt, long deadline,
+                              Callable<T> command, CompletableFuture<T> result, AtomicBoolean claimed) {
+
+        /**
+         * Claims the command for the worker or for withdrawing it, whichever comes first.
+         *
+         * @return true if the command was not claimed before
+         */
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private void run() {
+            try {
+                result.complete(command.call());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
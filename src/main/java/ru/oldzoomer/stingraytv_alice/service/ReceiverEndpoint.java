@@ -0,0 +1,59 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Current network address of a StingrayTV receiver.
+ * The address is replaced atomically when discovery resolves the receiver at a new address,
+ * so every request built after the swap goes to the new address without restarting anything.
+ */
+public class ReceiverEndpoint {
+
+    private final AtomicReference<StingrayDeviceDiscoveryService.Device> device;
+
+    /**
+     * @param device discovered device
+     */
+    public ReceiverEndpoint(StingrayDeviceDiscoveryService.Device device) {
+        this.device = new AtomicReference<>(device);
+    }
+
+    /**
+     * Gets the device as it was last resolved.
+     *
+     * @return discovered device
+     */
+    public StingrayDeviceDiscoveryService.Device device() {
+        return device.get();
+    }
+
+    /**
+     * Gets the current base URL of the device API.
+     *
+     * @return base URL, null if the device has no known address
+     */
+    public String baseUrl() {
+        return device.get().baseUrl();
+    }
+
+    /**
+     * Gets the serial number of the device, which does not change when the address does.
+     *
+     * @return device serial number
+     */
+    public String serialNumber() {
+        return device.get().serialNumber();
+    }
+
+    /**
+     * Replaces the device with a newer resolution of the same receiver.
+     *
+     * @param resolved device as it was resolved by discovery
+     * @return true if the base URL changed, false otherwise
+     */
+    public boolean update(StingrayDeviceDiscoveryService.Device resolved) {
+        StingrayDeviceDiscoveryService.Device previous = device.getAndSet(resolved);
+        return !Objects.equals(previous.baseUrl(), resolved.baseUrl());
+    }
+}
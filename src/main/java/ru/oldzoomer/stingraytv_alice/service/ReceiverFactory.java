@@ -0,0 +1,65 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import ru.oldzoomer.stingraytv_alice.config.ReceiverClientFactory;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+
+/**
+ * Creates the per-receiver objects for a discovered device.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReceiverFactory {
+
+    private final ReceiverClientFactory receiverClientFactory;
+    private final MeterRegistry meterRegistry;
+    private final StingrayConfigurationProperties stingrayProperties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Creates the objects used to talk to a receiver. The shadow poller is not started.
+     *
+     * @param device discovered device
+     * @return new receiver
+     */
+    public Receiver create(StingrayDeviceDiscoveryService.Device device) {
+        String receiverId = device.serialNumber();
+        ReceiverClientFactory.ReceiverClient client = receiverClientFactory.create(receiverId);
+        RestClient restClient = client.restClient();
+        ReceiverEndpoint endpoint = new ReceiverEndpoint(device);
+
+        StingrayConfigurationProperties.CommandQueue queueProperties = stingrayProperties.getCommandQueue();
+        StingrayConfigurationProperties.CircuitBreaker breakerProperties = stingrayProperties.getCircuitBreaker();
+        StingrayConfigurationProperties.Retry retryProperties = stingrayProperties.getRetry();
+        StingrayConfigurationProperties.Shadow shadowProperties = stingrayProperties.getShadow();
+
+        ReceiverCommandQueue commandQueue = new ReceiverCommandQueue(meterRegistry, receiverId,
+                queueProperties.getUserCommandTtl().toMillis(), queueProperties.getBackgroundTtl().toMillis());
+        ReceiverCircuitBreaker circuitBreaker = new ReceiverCircuitBreaker(meterRegistry, receiverId,
+                breakerProperties.getFailureThreshold(), breakerProperties.getOpenDuration().toMillis());
+        ReceiverRetryPolicy retryPolicy = new ReceiverRetryPolicy(meterRegistry, receiverId,
+                retryProperties.getMaxAttempts(), retryProperties.getBackoff().toMillis(),
+                retryProperties.getBudgetRatio(), retryProperties.getBudgetMax(),
+                retryProperties.getHedgeMinDelay().toMillis(), retryProperties.getHedgeInitialDelay().toMillis());
+        ChannelCatalog channelCatalog = new ChannelCatalog(restClient, endpoint, commandQueue);
+        KeyEventPipeline keyEventPipeline = new KeyEventPipeline(restClient, endpoint, commandQueue,
+                circuitBreaker, retryPolicy, stingrayProperties.getKeyEvents().getSpacing().toMillis());
+
+        StingrayTVService service = new StingrayTVService(restClient, endpoint, channelCatalog,
+                commandQueue, eventPublisher, circuitBreaker, retryPolicy, keyEventPipeline);
+        service.setCoalescingWindowMillis(stingrayProperties.getCoalescing().getWindow().toMillis());
+        service.setCoalescingMaxWaitMillis(stingrayProperties.getCoalescing().getMaxWait().toMillis());
+
+        DeviceShadow shadow = new DeviceShadow(service, commandQueue, stingrayProperties, eventPublisher,
+                shadowProperties.getActiveInterval().toMillis(), shadowProperties.getActiveWindow().toMillis(),
+                shadowProperties.getOnInterval().toMillis(), shadowProperties.getStandbyInterval().toMillis(),
+                shadowProperties.getMaxBackoff().toMillis());
+
+        return new Receiver(endpoint, client, commandQueue, circuitBreaker, channelCatalog, service, shadow);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+import ru.oldzoomer.stingraytv_alice.util.ParallelScope;
+
+/**
+ * Keeps pooled receiver connections warm.
+ * Opens the whole pool of every receiver as soon as it is registered and optionally pings
+ * the receivers periodically, so that voice commands do not pay for connecting to a receiver.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReceiverKeepAlive {
+
+    private final ReceiverRegistry receiverRegistry;
+
+    @Value("${app.rest-client.max-connections:2}")
+    private int maxConnections;
+
+    @Value("${app.rest-client.keep-alive-ping-enabled:true}")
+    private boolean pingEnabled;
+
+    /**
+     * Pre-warms the connection pool of a newly registered receiver in the background.
+     *
+     * @param event registered receiver
+     */
+    @EventListener
+    public void onReceiverRegistered(ReceiverRegistry.ReceiverRegisteredEvent event) {
+        Receiver receiver = event.receiver();
+        Thread.ofVirtual().name("receiver-prewarm-" + receiver.serialNumber())
+                .start(() -> prewarmConnections(receiver));
+    }
+
+    /**
+     * Pre-warms the connection pool by sending one concurrent request per pooled connection.
+     *
+     * @param receiver receiver whose pool is opened
+     */
+    void prewarmConnections(Receiver receiver) {
+        log.debug("Pre-warming {} connections for receiver {}", maxConnections, receiver.serialNumber());
+        try (ParallelScope scope = new ParallelScope()) {
+            for (int i = 0; i < maxConnections; i++) {
+                scope.fork(receiver.service()::ping);
+            }
+            scope.join(Duration.ofSeconds(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Failed to pre-warm receiver connections: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Periodically pings the receivers so idle pooled connections are not closed.
+     * Pings go through the background lane, so they never delay user commands.
+     */
+    @Scheduled(fixedDelayString = "${app.rest-client.keep-alive-ping-interval:25000}",
+            initialDelayString = "${app.rest-client.keep-alive-ping-interval:25000}")
+    public void ping() {
+        if (!pingEnabled) {
+            return;
+        }
+
+        for (Receiver receiver : receiverRegistry.receivers()) {
+            receiver.commandQueue().submit(CommandPriority.BACKGROUND, receiver.service()::ping)
+                    .whenComplete((answered, e) -> {
+                        if (!Boolean.TRUE.equals(answered)) {
+                            log.debug("Receiver {} did not answer keep-alive ping", receiver.serialNumber());
+                        }
+                    });
+        }
+    }
+}
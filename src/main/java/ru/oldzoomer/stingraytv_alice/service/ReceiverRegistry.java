@@ -0,0 +1,207 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry of the StingrayTV receivers known to the application, keyed by serial number.
+ * Requests from Yandex are routed to receivers by device ID, which is the receiver serial number.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReceiverRegistry {
+
+    private final StingrayDeviceDiscoveryService discoveryService;
+    private final ReceiverFactory receiverFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReceiverSnapshotStore snapshotStore;
+
+    private final Map<String, Receiver> receivers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the receivers known before the restart and starts discovering receivers
+     * in the background once the application is ready, so startup does not wait for mDNS
+     * or for receivers to answer. Restored receivers are usable right away and are revalidated
+     * by their shadow and by discovery, which updates their address if they moved.
+     * Until a receiver is registered, requests for it are answered as unreachable.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDiscovery() {
+        restoreSnapshot();
+        Thread.ofVirtual().name("receiver-discovery").start(this::discover);
+    }
+
+    /**
+     * Registers the receivers stored in the registry snapshot.
+     */
+    public void restoreSnapshot() {
+        for (ReceiverSnapshotStore.Entry entry : snapshotStore.load()) {
+            register(entry.device(), entry);
+        }
+    }
+
+    /**
+     * Discovers receivers and registers them.
+     */
+    public void discover() {
+        List<StingrayDeviceDiscoveryService.Device> devices = discoveryService.discoverStingrayDevices();
+        devices.forEach(this::register);
+        log.info("Registered {} StingrayTV receivers", receivers.size());
+    }
+
+    /**
+     * Registers a discovered device, starts polling its state and loads its channel catalog.
+     * If the device is already registered, its address is updated in place, so requests
+     * go to the new address right away and keep using the existing queue, pool and shadow.
+     *
+     * @param device discovered device
+     * @return registered receiver
+     */
+    public Receiver register(StingrayDeviceDiscoveryService.Device device) {
+        return register(device, null);
+    }
+
+    private synchronized Receiver register(StingrayDeviceDiscoveryService.Device device,
+                                           ReceiverSnapshotStore.Entry restored) {
+        Receiver registered = receivers.get(device.serialNumber());
+        if (registered != null) {
+            relocate(registered, device);
+            return registered;
+        }
+
+        Receiver receiver = receiverFactory.create(device);
+        if (restored != null) {
+            receiver.channelCatalog().restore(restored.channelListId(), restored.maxChannelNumber());
+        }
+        receivers.put(device.serialNumber(), receiver);
+        receiver.shadow().start();
+        Thread.ofVirtual().name("channel-catalog-" + device.serialNumber()).start(() -> {
+            receiver.channelCatalog().refresh();
+            eventPublisher.publishEvent(new ReceiverUpdatedEvent(receiver));
+            saveSnapshot();
+        });
+        log.info("Registered StingrayTV receiver {} at {}", device.serialNumber(), device.baseUrl());
+        eventPublisher.publishEvent(new ReceiverRegisteredEvent(receiver));
+        return receiver;
+    }
+
+    /**
+     * Registers a receiver found by the mDNS listener, or updates its address.
+     *
+     * @param event resolved device
+     */
+    @EventListener
+    public void onDeviceResolved(StingrayDeviceDiscoveryService.DeviceResolvedEvent event) {
+        register(event.device());
+    }
+
+    /**
+     * Logs a receiver that left the network. The receiver stays registered, so its device ID
+     * stays known to Yandex and it is reported as unreachable until it is resolved again.
+     *
+     * @param event removed device
+     */
+    @EventListener
+    public void onDeviceRemoved(StingrayDeviceDiscoveryService.DeviceRemovedEvent event) {
+        log.info("StingrayTV receiver {} left the network, waiting for it to come back",
+                event.device().serialNumber());
+    }
+
+    /**
+     * Finds a receiver by its serial number.
+     *
+     * @param serialNumber receiver serial number, the Yandex device ID
+     * @return receiver, empty if no receiver with this serial number is known
+     */
+    public Optional<Receiver> find(String serialNumber) {
+        return serialNumber != null ? Optional.ofNullable(receivers.get(serialNumber)) : Optional.empty();
+    }
+
+    /**
+     * Gets all known receivers.
+     *
+     * @return known receivers
+     */
+    public Collection<Receiver> receivers() {
+        return List.copyOf(receivers.values());
+    }
+
+    /**
+     * Reloads the channel catalogs of all receivers.
+     */
+    @Scheduled(fixedDelayString = "${app.channel-catalog.refresh-interval:600000}")
+    public void refreshChannelCatalogs() {
+        for (Receiver receiver : receivers.values()) {
+            receiver.channelCatalog().refresh();
+            eventPublisher.publishEvent(new ReceiverUpdatedEvent(receiver));
+        }
+        saveSnapshot();
+    }
+
+    /**
+     * Routes an applied command to the shadow of the receiver it was sent to.
+     *
+     * @param event applied command
+     */
+    @EventListener
+    public void onCommandApplied(StingrayTVService.CommandAppliedEvent event) {
+        find(event.serialNumber()).ifPresent(receiver -> receiver.shadow().onCommandApplied(event));
+    }
+
+    private void relocate(Receiver receiver, StingrayDeviceDiscoveryService.Device device) {
+        String previousUrl = receiver.endpoint().baseUrl();
+        if (receiver.endpoint().update(device)) {
+            // Failures were counted against the old address
+            receiver.circuitBreaker().reset();
+            log.info("StingrayTV receiver {} moved from {} to {}", device.serialNumber(), previousUrl, device.baseUrl());
+            saveSnapshot();
+        }
+    }
+
+    private void saveSnapshot() {
+        snapshotStore.save(receivers.values().stream()
+                .map(ReceiverSnapshotStore.Entry::of)
+                .sorted(Comparator.comparing(ReceiverSnapshotStore.Entry::serialNumber))
+                .toList());
+    }
+
+    /**
+     * Stops all receivers.
+     */
+    @PreDestroy
+    public void close() {
+        receivers.values().forEach(Receiver::close);
+        receivers.clear();
+    }
+
+    /**
+     * Event published after a new receiver has been registered.
+     *
+     * @param receiver registered receiver
+     */
+    public record ReceiverRegisteredEvent(Receiver receiver) {
+    }
+
+    /**
+     * Event published after the channel catalog of a registered receiver has been reloaded.
+     *
+     * @param receiver updated receiver
+     */
+    public record ReceiverUpdatedEvent(Receiver receiver) {
+    }
+}
@@ -0,0 +1,127 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.databind.DeserializationContext;
+import tools.jackson.databind.ValueDeserializer;
+
+/**
+ * Deserializers for the small JSON objects returned by the receiver API.
+ * They read the known fields straight from the parser and skip everything else,
+ * without reflective record binding or intermediate maps.
+ */
+final class ReceiverResponseDeserializers {
+
+    private ReceiverResponseDeserializers() {
+    }
+
+    /**
+     * Moves the parser to the first property of the object it is positioned at.
+     *
+     * @param p parser positioned at the start of the object or at its first property
+     * @param ctxt deserialization context used to report a value that is not an object
+     * @param type type being deserialized
+     * @return current token, a property name, or the end of the object if it is empty
+     */
+    private static JsonToken firstProperty(JsonParser p, DeserializationContext ctxt, Class<?> type) {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return p.nextToken();
+        }
+        if (token != JsonToken.PROPERTY_NAME && token != JsonToken.END_OBJECT) {
+            ctxt.reportInputMismatch(type, "Expected a JSON object for %s", type.getSimpleName());
+        }
+        return token;
+    }
+
+    private static String stringValue(JsonParser p) {
+        String value = p.getValueAsString();
+        p.skipChildren();
+        return value;
+    }
+
+    private static int intValue(JsonParser p) {
+        int value = p.getValueAsInt();
+        p.skipChildren();
+        return value;
+    }
+
+    static class PowerStateDeserializer extends ValueDeserializer<StingrayTVService.PowerState> {
+        @Override
+        public StingrayTVService.PowerState deserialize(JsonParser p, DeserializationContext ctxt) {
+            String state = null;
+            for (JsonToken token = firstProperty(p, ctxt, StingrayTVService.PowerState.class);
+                 token == JsonToken.PROPERTY_NAME; token = p.nextToken()) {
+                String name = p.currentName();
+                p.nextToken();
+                if ("state".equals(name)) {
+                    state = stringValue(p);
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return new StingrayTVService.PowerState(state);
+        }
+    }
+
+    static class VolumeStateDeserializer extends ValueDeserializer<StingrayTVService.VolumeState> {
+        @Override
+        public StingrayTVService.VolumeState deserialize(JsonParser p, DeserializationContext ctxt) {
+            int max = 0;
+            int state = 0;
+            for (JsonToken token = firstProperty(p, ctxt, StingrayTVService.VolumeState.class);
+                 token == JsonToken.PROPERTY_NAME; token = p.nextToken()) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "max" -> max = intValue(p);
+                    case "state" -> state = intValue(p);
+                    default -> p.skipChildren();
+                }
+            }
+            return new StingrayTVService.VolumeState(max, state);
+        }
+    }
+
+    static class ChannelStateDeserializer extends ValueDeserializer<StingrayTVService.ChannelState> {
+        @Override
+        public StingrayTVService.ChannelState deserialize(JsonParser p, DeserializationContext ctxt) {
+            int channelNumber = 0;
+            String channelListId = null;
+            for (JsonToken token = firstProperty(p, ctxt, StingrayTVService.ChannelState.class);
+                 token == JsonToken.PROPERTY_NAME; token = p.nextToken()) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "channelNumber" -> channelNumber = intValue(p);
+                    case "channelListId" -> channelListId = stringValue(p);
+                    default -> p.skipChildren();
+                }
+            }
+            return new StingrayTVService.ChannelState(channelNumber, channelListId);
+        }
+    }
+
+    static class ReceiverInfoDeserializer extends ValueDeserializer<StingrayDeviceDiscoveryService.ReceiverInfo> {
+        @Override
+        public StingrayDeviceDiscoveryService.ReceiverInfo deserialize(JsonParser p, DeserializationContext ctxt) {
+            String model = null;
+            String serialNumber = null;
+            String hardwareId = null;
+            String softwareVersion = null;
+            for (JsonToken token = firstProperty(p, ctxt, StingrayDeviceDiscoveryService.ReceiverInfo.class);
+                 token == JsonToken.PROPERTY_NAME; token = p.nextToken()) {
+                String name = p.currentName();
+                p.nextToken();
+                switch (name) {
+                    case "userFriendlyModelName" -> model = stringValue(p);
+                    case "serialNumber" -> serialNumber = stringValue(p);
+                    case "hardwareId" -> hardwareId = stringValue(p);
+                    case "softwareVersion" -> softwareVersion = stringValue(p);
+                    default -> p.skipChildren();
+                }
+            }
+            return new StingrayDeviceDiscoveryService.ReceiverInfo(model, serialNumber, hardwareId, softwareVersion);
+        }
+    }
+}
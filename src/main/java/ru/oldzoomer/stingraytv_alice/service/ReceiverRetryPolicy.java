@@ -0,0 +1,221 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.enums.ReceiverCommand;
+
+/**
+ * Retry policy for requests to the StingrayTV receiver.
+ * Idempotent commands are retried after connection failures, timeouts and server errors,
+ * key events that toggle the device state are never sent twice. Reads are hedged: if the first
+ * request has not answered within the observed p95 latency, a second one is sent and the first
+ * answer wins. Retries and hedged requests draw from a budget that is refilled by a fraction
+ * of every request, so they cannot multiply the load on a struggling receiver.
+ */
+@Slf4j
+public class ReceiverRetryPolicy {
+
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final double budgetRatio;
+    private final double budgetMax;
+    private final long hedgeMinDelayMillis;
+    private final long hedgeInitialDelayMillis;
+
+    private final Timer readLatency;
+    private final Counter retries;
+    private final Counter hedges;
+    private final Counter budgetExhausted;
+
+    private double budget;
+
+    /**
+     * @param meterRegistry registry for retry metrics
+     * @param receiverId receiver the requests are sent to, used as the metrics tag
+     * @param maxAttempts attempts per idempotent command, including the first one
+     * @param backoffMillis delay before a command is retried
+     * @param budgetRatio budget tokens deposited by every request
+     * @param budgetMax maximum number of budget tokens
+     * @param hedgeMinDelayMillis lower bound of the hedging delay
+     * @param hedgeInitialDelayMillis hedging delay used until enough latencies were recorded
+     */
+    public ReceiverRetryPolicy(MeterRegistry meterRegistry, String receiverId, int maxAttempts, long backoffMillis,
+                               double budgetRatio, double budgetMax,
+                               long hedgeMinDelayMillis, long hedgeInitialDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+        this.budgetRatio = budgetRatio;
+        this.budgetMax = budgetMax;
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+        this.hedgeInitialDelayMillis = hedgeInitialDelayMillis;
+        this.budget = budgetMax;
+
+        readLatency = Timer.builder("stingray.receiver.read.latency")
+                .description("Latency of successful reads from the receiver")
+                .publishPercentiles(0.95)
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        retries = Counter.builder("stingray.receiver.retries")
+                .description("Requests sent again after a failure")
+                .tag("kind", "retry")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        hedges = Counter.builder("stingray.receiver.retries")
+                .description("Requests sent again after a failure")
+                .tag("kind", "hedge")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+        budgetExhausted = Counter.builder("stingray.receiver.retries.exhausted")
+                .description("Retries and hedged requests skipped because the retry budget was empty")
+                .tag("receiver", receiverId)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends a command to the receiver, retrying it if the command is idempotent.
+     *
+     * @param command command being sent
+     * @param request request that sends the command
+     * @return request result
+     * @throws Exception the exception thrown by the last attempt
+     */
+    public <T> T execute(ReceiverCommand command, Callable<T> request) throws Exception {
+        deposit();
+        if (!command.isIdempotent()) {
+            return request.call();
+        }
+
+        int attempt = 1;
+        while (true) {
+            try {
+                return request.call();
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || !isRetryable(e) || !withdraw()) {
+                    throw e;
+                }
+                attempt++;
+                retries.increment();
+                log.debug("Retrying {} command after failure: {}", command, e.getMessage());
+                Thread.sleep(backoffMillis);
+            }
+        }
+    }
+
+    /**
+     * Reads from the receiver with hedging.
+     * A second request is sent if the first one is slower than the p95 read latency,
+     * or right away if the first one fails with a retryable error.
+     *
+     * @param request read request, must be idempotent
+     * @return result of the first successful request
+     * @throws Exception the exception thrown by the request if no request succeeded
+     */
+    public <T> T read(Callable<T> request) throws Exception {
+        deposit();
+        CompletableFuture<T> first = start(request);
+        try {
+            return first.get(hedgeDelayMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (!withdraw()) {
+                return await(first);
+            }
+            hedges.increment();
+            log.debug("Receiver read is slower than p95, sending hedged request");
+            return await(firstSuccessful(first, start(request)));
+        } catch (ExecutionException e) {
+            Exception cause = e.getCause() instanceof Exception exception ? exception : e;
+            if (!isRetryable(cause) || !withdraw()) {
+                throw cause;
+            }
+            retries.increment();
+            log.debug("Retrying receiver read after failure: {}", cause.getMessage());
+            return await(start(request));
+        }
+    }
+
+    private <T> CompletableFuture<T> start(Callable<T> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread.ofVirtual().name("receiver-read").start(() -> {
+            long startedAt = System.nanoTime();
+            try {
+                result.complete(request.call());
+                readLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> firstSuccessful(CompletableFuture<T> first, CompletableFuture<T> second) {
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<T> attempt : List.of(first, second)) {
+            attempt.whenComplete((result, e) -> {
+                if (e == null) {
+                    winner.complete(result);
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(e);
+                }
+            });
+        }
+        return winner;
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private long hedgeDelayMillis() {
+        if (readLatency.count() < MIN_LATENCY_SAMPLES) {
+            return hedgeInitialDelayMillis;
+        }
+        for (ValueAtPercentile percentile : readLatency.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95) {
+                return Math.max(hedgeMinDelayMillis, (long) percentile.value(TimeUnit.MILLISECONDS));
+            }
+        }
+        return hedgeInitialDelayMillis;
+    }
+
+    private synchronized void deposit() {
+        budget = Math.min(budgetMax, budget + budgetRatio);
+    }
+
+    private synchronized boolean withdraw() {
+        if (budget < 1) {
+            budgetExhausted.increment();
+            log.debug("Retry budget exhausted, not sending the request again");
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    private boolean isRetryable(Exception e) {
+        return e instanceof ResourceAccessException || e instanceof HttpServerErrorException;
+    }
+}
@@ -0,0 +1,231 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+
+/**
+ * Stores the known receivers in a small file, so that after a restart they can be used right away
+ * instead of waiting for discovery. The file is replaced atomically, and a missing, corrupt or
+ * old-format file is ignored, in which case the receivers are discovered as usual.
+ * The users linked to the skill are stored in a second file next to it, so that state changes
+ * can be reported to Yandex right after a restart, before the users make their next request.
+ */
+@Slf4j
+@Component
+public class ReceiverSnapshotStore {
+
+    static final int FORMAT_VERSION = 1;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Path snapshotFile;
+    private final Path linkedUsersFile;
+
+    private List<Entry> saved;
+    private Set<String> savedLinkedUsers;
+
+    /**
+     * @param snapshotFile path of the snapshot file, empty to disable the snapshot
+     */
+    public ReceiverSnapshotStore(@Value("${app.registry.snapshot-file:}") String snapshotFile) {
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        this.linkedUsersFile = this.snapshotFile != null
+                ? this.snapshotFile.resolveSibling("linked-users.json") : null;
+    }
+
+    /**
+     * Loads the receivers from the snapshot file.
+     *
+     * @return stored receivers, empty if there is no usable snapshot
+     */
+    public synchronized List<Entry> load() {
+        if (snapshotFile == null) {
+            return List.of();
+        }
+
+        try {
+            Snapshot snapshot = objectMapper.readValue(Files.readAllBytes(snapshotFile), Snapshot.class);
+            if (snapshot == null || snapshot.version() != FORMAT_VERSION || snapshot.receivers() == null) {
+                log.warn("Ignoring receiver snapshot {} with unsupported format", snapshotFile);
+                return List.of();
+            }
+
+            List<Entry> entries = snapshot.receivers().stream()
+                    .filter(entry -> entry != null && entry.serialNumber() != null && entry.baseUrl() != null)
+                    .toList();
+            saved = entries;
+            log.info("Loaded {} receivers from snapshot {}", entries.size(), snapshotFile);
+            return entries;
+        } catch (NoSuchFileException e) {
+            log.debug("No receiver snapshot at {}", snapshotFile);
+        } catch (IOException | JacksonException e) {
+            log.warn("Ignoring unreadable receiver snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+        return List.of();
+    }
+
+    /**
+     * Writes the receivers to the snapshot file, unless they are the same as the last saved ones.
+     * The snapshot is written to a temporary file first and then moved over the old one,
+     * so a crash while saving never leaves a partially written snapshot behind.
+     *
+     * @param entries receivers to store
+     */
+    public synchronized void save(List<Entry> entries) {
+        if (snapshotFile == null || entries.equals(saved)) {
+            return;
+        }
+
+        try {
+            write(snapshotFile, new Snapshot(FORMAT_VERSION, entries));
+            saved = List.copyOf(entries);
+            log.debug("Saved {} receivers to snapshot {}", entries.size(), snapshotFile);
+        } catch (IOException | JacksonException e) {
+            log.warn("Failed to save receiver snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the users linked to the skill.
+     *
+     * @return stored user IDs, empty if there is no usable file
+     */
+    public synchronized Set<String> loadLinkedUsers() {
+        if (linkedUsersFile == null) {
+            return Set.of();
+        }
+
+        try {
+            LinkedUsers linkedUsers = objectMapper.readValue(Files.readAllBytes(linkedUsersFile), LinkedUsers.class);
+            if (linkedUsers == null || linkedUsers.version() != FORMAT_VERSION || linkedUsers.userIds() == null) {
+                log.warn("Ignoring linked users file {} with unsupported format", linkedUsersFile);
+                return Set.of();
+            }
+
+            Set<String> userIds = new TreeSet<>(linkedUsers.userIds());
+            userIds.remove(null);
+            savedLinkedUsers = userIds;
+            log.info("Loaded {} linked users from {}", userIds.size(), linkedUsersFile);
+            return userIds;
+        } catch (NoSuchFileException e) {
+            log.debug("No linked users file at {}", linkedUsersFile);
+        } catch (IOException | JacksonException e) {
+            log.warn("Ignoring unreadable linked users file {}: {}", linkedUsersFile, e.getMessage());
+        }
+        return Set.of();
+    }
+
+    /**
+     * Writes the users linked to the skill, unless they are the same as the last saved ones.
+     *
+     * @param userIds IDs of the linked users
+     */
+    public synchronized void saveLinkedUsers(Collection<String> userIds) {
+        Set<String> sorted = new TreeSet<>(userIds);
+        if (linkedUsersFile == null || sorted.equals(savedLinkedUsers)) {
+            return;
+        }
+
+        try {
+            write(linkedUsersFile, new LinkedUsers(FORMAT_VERSION, List.copyOf(sorted)));
+            savedLinkedUsers = sorted;
+            log.debug("Saved {} linked users to {}", sorted.size(), linkedUsersFile);
+        } catch (IOException | JacksonException e) {
+            log.warn("Failed to save linked users file {}: {}", linkedUsersFile, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the content to a temporary file first and then moves it over the old file,
+     * so a crash while saving never leaves a partially written file behind.
+     *
+     * @param file file to write
+     * @param content value written as JSON
+     * @throws IOException if the file could not be written
+     */
+    private void write(Path file, Object content) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, objectMapper.writeValueAsBytes(content));
+            try {
+                Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Contents of the snapshot file.
+     *
+     * @param version format version of the file
+     * @param receivers stored receivers
+     */
+    record Snapshot(int version, List<Entry> receivers) {
+    }
+
+    /**
+     * Contents of the linked users file.
+     *
+     * @param version format version of the file
+     * @param userIds IDs of the users linked to the skill
+     */
+    record LinkedUsers(int version, List<String> userIds) {
+    }
+
+    /**
+     * A stored receiver.
+     *
+     * @param baseUrl last known base URL of the device API
+     * @param model device model name
+     * @param serialNumber device serial number
+     * @param hardwareId device hardware ID
+     * @param softwareVersion device software version
+     * @param channelListId ID of the channel list the channel catalog was loaded from, null if unknown
+     * @param maxChannelNumber highest channel number of the channel catalog, 0 if unknown
+     */
+    public record Entry(String baseUrl, String model, String serialNumber, String hardwareId,
+                        String softwareVersion, String channelListId, int maxChannelNumber) {
+
+        /**
+         * Creates the entry for a registered receiver.
+         *
+         * @param receiver registered receiver
+         * @return snapshot entry
+         */
+        static Entry of(Receiver receiver) {
+            StingrayDeviceDiscoveryService.Device device = receiver.device();
+            return new Entry(device.baseUrl(), device.model(), device.serialNumber(), device.hardwareId(),
+                    device.softwareVersion(), receiver.channelCatalog().channelListId(),
+                    receiver.channelCatalog().maxChannelNumber(0));
+        }
+
+        /**
+         * Gets the stored receiver as a discovered device.
+         *
+         * @return device at its last known address
+         */
+        StingrayDeviceDiscoveryService.Device device() {
+            return new StingrayDeviceDiscoveryService.Device(baseUrl, model, serialNumber, hardwareId,
+                    softwareVersion);
+        }
+    }
+}
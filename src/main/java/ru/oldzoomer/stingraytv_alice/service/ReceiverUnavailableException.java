@@ -0,0 +1,11 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+/**
+ * Thrown when a request is not sent because the receiver circuit breaker is open.
+ */
+public class ReceiverUnavailableException extends RuntimeException {
+
+    public ReceiverUnavailableException(String message) {
+        super(message);
+    }
+}
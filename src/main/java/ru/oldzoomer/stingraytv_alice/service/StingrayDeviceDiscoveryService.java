@@ -1,30 +1,50 @@
 package ru.oldzoomer.stingraytv_alice.service;
 
 import java.io.IOException;
+import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.jmdns.JmDNS;
 import javax.jmdns.ServiceEvent;
 import javax.jmdns.ServiceListener;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.RestClient;
 
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.util.ParallelScope;
+import tools.jackson.databind.annotation.JsonDeserialize;
 
 /**
  * Service for discovering StingrayTV devices on the local network using mDNS.
  * This service handles automatic discovery of StingrayTV receivers on the local network
- * and validates their connectivity.
+ * and validates their connectivity. Configured addresses and mDNS on every network interface
+ * are tried at the same time, and the local subnets can be scanned if neither finds a receiver.
+ * Once started, mDNS discovery keeps listening, so receivers that join the network or get
+ * a new address later are picked up without a restart.
  */
 @Slf4j
 @Service
@@ -32,95 +52,301 @@ import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
 public class StingrayDeviceDiscoveryService {
 
     private final StingrayConfigurationProperties stingrayProperties;
+    private final RestClient restClient;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final String STINGRAY_SERVICE_TYPE = "_stingray-remote._tcp.local.";
+    private static final Duration DISCOVERY_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration MDNS_START_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration MORE_DEVICES_GRACE_PERIOD = Duration.ofSeconds(1);
     private final Map<String, Device> discoveredDevices = new ConcurrentHashMap<>();
-    private final RestClient restClient = RestClient.create();
+    private final CountDownLatch firstDeviceResolved = new CountDownLatch(1);
+    private final List<JmDNS> mdnsListeners = new ArrayList<>();
 
     /**
-     * Discover StingrayTV devices on the local network using mDNS.
-     * First attempts to use a configured IP address if provided, otherwise performs
-     * mDNS discovery to find devices on the network.
+     * Discover StingrayTV devices on the local network.
+     * All strategies race each other: every configured IP address is probed while mDNS discovery
+     * listens on every active multicast interface. Once the first receiver has been validated,
+     * the other strategies get a short grace period to report more receivers, and the probes
+     * that are still running are cancelled.
      *
-     * @return Device object if found, null otherwise
+     * @return discovered devices, empty if none were found
      */
-    public Device discoverStingrayDevice() {
-        String receiverIp = stingrayProperties.getReceiverIp();
+    public List<Device> discoverStingrayDevices() {
+        List<String> configuredAddresses = configuredAddresses();
+        boolean mdnsEnabled = stingrayProperties.isMdnsEnabled();
+        Map<String, Device> devices = new ConcurrentHashMap<>();
+        CountDownLatch firstDevice = new CountDownLatch(1);
+        CountDownLatch probesDone = new CountDownLatch(configuredAddresses.size());
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (String address : configuredAddresses) {
+                executor.submit(() -> {
+                    try {
+                        log.debug("Probing configured receiver address: {}", address);
+                        probe(address).ifPresent(device -> {
+                            log.info("Found device using configured IP: {}", device);
+                            devices.putIfAbsent(device.serialNumber(), device);
+                            firstDevice.countDown();
+                        });
+                    } finally {
+                        probesDone.countDown();
+                    }
+                });
+            }
+
+            if (mdnsEnabled) {
+                // The listeners outlive the race, so they are not started by the cancellable executor
+                Thread.ofVirtual().name("mdns-discovery-start").start(this::startMdnsListeners);
+                executor.submit(() -> {
+                    firstDeviceResolved.await();
+                    firstDevice.countDown();
+                    return null;
+                });
+            } else {
+                // Without mDNS the race is over once all probes have answered
+                executor.submit(() -> {
+                    probesDone.await();
+                    firstDevice.countDown();
+                    return null;
+                });
+            }
+
+            if (firstDevice.await(DISCOVERY_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                // Give the other strategies a moment to report more receivers
+                if (mdnsEnabled) {
+                    Thread.sleep(MORE_DEVICES_GRACE_PERIOD);
+                } else {
+                    probesDone.await(MORE_DEVICES_GRACE_PERIOD.toMillis(), TimeUnit.MILLISECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.error("Discovery interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            // Cancel the strategies that lost the race, the mDNS listeners keep running
+            executor.shutdownNow();
+        }
+
+        discoveredDevices.values().forEach(device -> devices.putIfAbsent(device.serialNumber(), device));
+        if (devices.isEmpty() && stingrayProperties.isSubnetScanEnabled()) {
+            scanSubnets().forEach(device -> devices.putIfAbsent(device.serialNumber(), device));
+        }
+
+        if (devices.isEmpty()) {
+            log.warn("No StingrayTV devices discovered via mDNS or configured IP");
+            return List.of();
+        }
+
+        log.info("Successfully discovered {} StingrayTV devices", devices.size());
+        return List.copyOf(devices.values());
+    }
+
+    /**
+     * Scans the configured or local subnets for receivers on the receiver port.
+     * Used as a fallback on networks where multicast is blocked and mDNS cannot find receivers.
+     *
+     * @return receivers found in the subnets
+     */
+    private List<Device> scanSubnets() {
         int receiverPort = stingrayProperties.getReceiverPort();
+        try {
+            List<SubnetScanner.Subnet> subnets = stingrayProperties.getSubnetScanRanges().isEmpty()
+                    ? SubnetScanner.localSubnets()
+                    : stingrayProperties.getSubnetScanRanges().stream().map(SubnetScanner.Subnet::parse).toList();
+            log.info("Scanning subnets {} for StingrayTV devices on port {}", subnets, receiverPort);
+
+            SubnetScanner scanner = new SubnetScanner(stingrayProperties.getSubnetScanConnectTimeout(),
+                    stingrayProperties.getSubnetScanMaxConcurrency());
+            List<Device> devices = scanner.scan(subnets, receiverPort,
+                    host -> getDevice(host.getHostAddress(), receiverPort));
+            devices.forEach(device -> log.info("Found device by subnet scan: {}", device));
+            return devices;
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid subnet scan range: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            log.error("Subnet scan interrupted", e);
+            Thread.currentThread().interrupt();
+        }
+        return List.of();
+    }
+
+    /**
+     * Gets the configured receiver addresses.
+     * Entries are separated by commas and may carry their own port, e.g. "192.168.1.10:50000".
+     *
+     * @return configured addresses, empty if none are configured
+     */
+    private List<String> configuredAddresses() {
+        return Arrays.stream(StringUtils.commaDelimitedListToStringArray(stingrayProperties.getReceiverIp()))
+                .map(String::trim)
+                .filter(address -> !address.isEmpty())
+                .toList();
+    }
+
+    /**
+     * Validates a configured receiver address.
+     *
+     * @param address IP address, optionally followed by a colon and a port
+     * @return Optional Device object if reachable, empty otherwise
+     */
+    private Optional<Device> probe(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator > 0 && address.indexOf(':') == separator) {
+            try {
+                return getDevice(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid port in configured receiver address: {}", address);
+                return Optional.empty();
+            }
+        }
+
+        int receiverPort = stingrayProperties.getReceiverPort();
+        if (receiverPort < 0) {
+            log.warn("No port configured for receiver address: {}", address);
+            return Optional.empty();
+        }
+        return getDevice(address, receiverPort);
+    }
+
+    /**
+     * Starts listening for StingrayTV devices via mDNS on every active multicast interface,
+     * unless already listening. The listeners stay active for the life of the application,
+     * so receivers that appear later or move to a new address are reported with a
+     * {@link DeviceResolvedEvent}.
+     */
+    private synchronized void startMdnsListeners() {
+        if (!mdnsListeners.isEmpty()) {
+            return;
+        }
 
-        if (StringUtils.hasText(receiverIp) && receiverPort >= 0) {
-            log.debug("Using configured receiver IP: {} and port: {}", receiverIp, receiverPort);
-            Optional<Device> device = getDevice(receiverIp, receiverPort);
+        List<InetAddress> addresses = multicastAddresses();
+        log.info("Starting mDNS discovery for StingrayTV devices on {}", addresses);
 
-            if (device.isPresent()) {
-                log.info("Found device using configured IP: {}", device.get());
-                return device.get();
+        // Opening an mDNS socket takes a while, so open all of them at once
+        List<Future<JmDNS>> started = new ArrayList<>();
+        try (ParallelScope scope = new ParallelScope()) {
+            for (InetAddress address : addresses) {
+                started.add(scope.fork(() -> startMdnsListener(address)));
             }
+            scope.join(MDNS_START_TIMEOUT);
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Failed to start mDNS discovery", e);
+        } catch (InterruptedException e) {
+            log.error("mDNS discovery start interrupted", e);
+            Thread.currentThread().interrupt();
         }
 
-        log.info("Starting mDNS discovery for StingrayTV devices...");
+        for (Future<JmDNS> listener : started) {
+            if (listener.state() == Future.State.SUCCESS && listener.resultNow() != null) {
+                mdnsListeners.add(listener.resultNow());
+            }
+        }
+    }
+
+    private JmDNS startMdnsListener(InetAddress address) {
+        JmDNS jmdns;
         try {
-            JmDNS jmdns = JmDNS.create(InetAddress.getLocalHost());
-            CountDownLatch latch = new CountDownLatch(1);
+            jmdns = JmDNS.create(address);
+        } catch (IOException e) {
+            log.warn("IO error starting mDNS discovery on {}: {}", address, e.getMessage());
+            return null;
+        }
 
-            jmdns.addServiceListener(STINGRAY_SERVICE_TYPE, new ServiceListener() {
-                @Override
-                public void serviceAdded(ServiceEvent event) {
-                    log.debug("Service added: {}", event.getName());
+        jmdns.addServiceListener(STINGRAY_SERVICE_TYPE, new ServiceListener() {
+            @Override
+            public void serviceAdded(ServiceEvent event) {
+                log.debug("Service added: {}", event.getName());
+            }
+
+            @Override
+            public void serviceRemoved(ServiceEvent event) {
+                log.debug("Service removed: {}", event.getName());
+                Device device = discoveredDevices.remove(event.getName());
+                if (device != null) {
+                    eventPublisher.publishEvent(new DeviceRemovedEvent(device));
                 }
+            }
 
-                @Override
-                public void serviceRemoved(ServiceEvent event) {
-                    log.debug("Service removed: {}", event.getName());
-                    discoveredDevices.remove(event.getName());
+            @Override
+            public void serviceResolved(ServiceEvent event) {
+                String[] hostAddresses = event.getInfo().getHostAddresses();
+                if (hostAddresses.length == 0) {
+                    log.debug("Service resolved without an address: {}", event.getName());
+                    return;
                 }
 
-                @Override
-                public void serviceResolved(ServiceEvent event) {
-                    log.debug("Service resolved: {} at {}:{}",
-                            event.getName(),
-                            event.getInfo().getHostAddresses()[0],
-                            event.getInfo().getPort());
+                log.debug("Service resolved: {} at {}:{}",
+                        event.getName(),
+                        hostAddresses[0],
+                        event.getInfo().getPort());
 
-                    Optional<Device> device = getDevice(
-                            event.getInfo().getHostAddresses()[0],
-                            event.getInfo().getPort()
-                    );
+                Optional<Device> device = getDevice(
+                        hostAddresses[0],
+                        event.getInfo().getPort()
+                );
 
-                    device.ifPresent(value -> {
-                        discoveredDevices.put(event.getName(), value);
+                device.ifPresent(value -> {
+                    Device previous = discoveredDevices.put(event.getName(), value);
+                    if (!value.equals(previous)) {
                         log.info("Discovered device via mDNS: {}", value);
-                    });
+                        eventPublisher.publishEvent(new DeviceResolvedEvent(value));
+                    }
+                    firstDeviceResolved.countDown();
+                });
+            }
+        });
+        return jmdns;
+    }
 
-                    latch.countDown();
+    /**
+     * Gets the IPv4 addresses of all active, multicast capable, non-loopback interfaces.
+     * Falls back to the address of the local host if there are none.
+     *
+     * @return addresses to listen for mDNS announcements on
+     */
+    private List<InetAddress> multicastAddresses() {
+        List<InetAddress> addresses = new ArrayList<>();
+        try {
+            for (NetworkInterface networkInterface : NetworkInterface.networkInterfaces().toList()) {
+                if (networkInterface.isUp() && networkInterface.supportsMulticast() && !networkInterface.isLoopback()) {
+                    networkInterface.inetAddresses()
+                            .filter(Inet4Address.class::isInstance)
+                            .forEach(addresses::add);
                 }
-            });
-
-            // Wait for discovery with timeout
-            boolean discovered = latch.await(5, TimeUnit.SECONDS);
-            jmdns.close();
-
-            if (discovered && !discoveredDevices.isEmpty()) {
-                Device firstDevice = discoveredDevices.values().iterator().next();
-                log.info("Successfully discovered StingrayTV device via mDNS: {}", firstDevice);
-                return firstDevice;
-            } else {
-                log.warn("No devices discovered via mDNS after timeout");
             }
+        } catch (SocketException e) {
+            log.warn("Failed to list network interfaces: {}", e.getMessage());
+        }
 
-        } catch (IOException e) {
-            log.error("IO error during mDNS discovery", e);
-        } catch (InterruptedException e) {
-            log.error("Discovery interrupted", e);
-            Thread.currentThread().interrupt();
+        if (addresses.isEmpty()) {
+            try {
+                addresses.add(InetAddress.getLocalHost());
+            } catch (UnknownHostException e) {
+                log.warn("Failed to resolve local host address: {}", e.getMessage());
+            }
         }
+        return addresses;
+    }
 
-        log.warn("No StingrayTV devices discovered via mDNS or configured IP");
-        return null;
+    /**
+     * Stops listening for devices via mDNS.
+     */
+    @PreDestroy
+    public synchronized void close() {
+        for (JmDNS jmdns : mdnsListeners) {
+            try {
+                jmdns.close();
+            } catch (IOException e) {
+                log.warn("Failed to close mDNS listener: {}", e.getMessage());
+            }
+        }
+        mdnsListeners.clear();
     }
 
     /**
-     * Check if device is reachable at the given URL using Spring WebClient.
+     * Check if device is reachable at the given URL using the receiver RestClient.
      * Validates that the device is responding correctly to API requests.
      *
      * @param receiverIp IP address of the device
@@ -133,18 +359,15 @@ public class StingrayDeviceDiscoveryService {
                     receiverIp, receiverPort);
             log.debug("Checking device connectivity at URL: {}", baseUrl + "/receiver-info");
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restClient.get()
+            ReceiverInfo response = restClient.get()
                     .uri(baseUrl + "/receiver-info")
                     .accept(MediaType.APPLICATION_JSON)
                     .retrieve()
-                    .body(Map.class);
+                    .body(ReceiverInfo.class);
 
-            if (response != null && response.containsKey("userFriendlyModelName") &&
-                    response.containsKey("serialNumber")) {
-                Device device = new Device(baseUrl, response.get("userFriendlyModelName").toString(),
-                        response.get("serialNumber").toString(), response.get("hardwareId").toString(),
-                        response.get("softwareVersion").toString());
+            if (response != null && response.userFriendlyModelName() != null && response.serialNumber() != null) {
+                Device device = new Device(baseUrl, response.userFriendlyModelName(), response.serialNumber(),
+                        response.hardwareId(), response.softwareVersion());
                 log.debug("Successfully validated device at URL: {}", baseUrl);
                 return Optional.of(device);
             } else {
@@ -168,4 +391,34 @@ public class StingrayDeviceDiscoveryService {
     public record Device(String baseUrl, String model, String serialNumber,
                          String hardwareId, String softwareVersion) {
     }
-}
\ No newline at end of file
+
+    /**
+     * Receiver information returned by the receiver-info endpoint.
+     *
+     * @param userFriendlyModelName device model name
+     * @param serialNumber device serial number
+     * @param hardwareId device hardware ID
+     * @param softwareVersion device software version
+     */
+    @JsonDeserialize(using = ReceiverResponseDeserializers.ReceiverInfoDeserializer.class)
+    public record ReceiverInfo(String userFriendlyModelName, String serialNumber, String hardwareId,
+                               String softwareVersion) {
+    }
+
+    /**
+     * Event published when mDNS discovery resolves a device, either for the first time
+     * or at a new address.
+     *
+     * @param device resolved device
+     */
+    public record DeviceResolvedEvent(Device device) {
+    }
+
+    /**
+     * Event published when a device announced that it left the network.
+     *
+     * @param device device as it was last resolved
+     */
+    public record DeviceRemovedEvent(Device device) {
+    }
+}
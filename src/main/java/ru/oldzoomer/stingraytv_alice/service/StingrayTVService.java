@@ -1,22 +1,48 @@
 package ru.oldzoomer.stingraytv_alice.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
-import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
-import org.springframework.web.reactive.function.client.WebClient;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+import ru.oldzoomer.stingraytv_alice.enums.ReceiverCommand;
+import tools.jackson.databind.annotation.JsonDeserialize;
 
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 @Slf4j
-@Service
 @RequiredArgsConstructor
 public class StingrayTVService {
 
     private final RestClient restClient;
-    private final WebClient webClient;
-    private final StingrayDeviceDiscoveryService.Device device;
+    private final ReceiverEndpoint endpoint;
+    private final ChannelCatalog channelCatalog;
+    private final ReceiverCommandQueue commandQueue;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReceiverCircuitBreaker circuitBreaker;
+    private final ReceiverRetryPolicy retryPolicy;
+    private final KeyEventPipeline keyEventPipeline;
+
+    /**
+     * Window in which volume and channel commands are coalesced, 0 sends every command.
+     */
+    @Setter
+    private long coalescingWindowMillis;
+
+    /**
+     * How long a coalesced command waits for its value to be sent after the window closed.
+     */
+    @Setter
+    private long coalescingMaxWaitMillis = 15000;
+
+    private final CommandCoalescer volumeCoalescer = new CommandCoalescer("volume",
+            () -> coalescingWindowMillis, () -> coalescingMaxWaitMillis, this::sendVolume);
+    private final CommandCoalescer channelCoalescer = new CommandCoalescer("channel",
+            () -> coalescingWindowMillis, () -> coalescingMaxWaitMillis, this::sendChannel);
 
     /**
      * Gets the current power state of the StingrayTV device.
@@ -24,30 +50,43 @@ public class StingrayTVService {
      * @return PowerState object with the current power state
      */
     public PowerState getPowerState() {
+        PowerState powerState = fetchPowerState();
+        return powerState != null ? powerState : new PowerState("offline");
+    }
+
+    /**
+     * Reads the current power state from the StingrayTV device.
+     *
+     * @return PowerState object, null if the state could not be read
+     */
+    PowerState fetchPowerState() {
         try {
-            String baseUrl = device.baseUrl();
+            String baseUrl = endpoint.baseUrl();
             if (baseUrl == null) {
                 log.warn("Device base URL is null, returning offline state");
-                return new PowerState("offline");
+                return null;
             }
 
             log.debug("Getting power state from device at URL: {}", baseUrl + "/power");
-            PowerState response = restClient.get()
-                    .uri(baseUrl + "/power")
+            PowerState response = read(() -> restClient.get()
+                    .uri(endpoint.baseUrl() + "/power")
                     .accept(MediaType.APPLICATION_JSON)
                     .retrieve()
-                    .body(PowerState.class);
+                    .body(PowerState.class));
 
             if (response != null && response.state != null) {
                 log.debug("Successfully retrieved power state: {}", response.state);
                 return response;
             } else {
                 log.warn("Received null or empty power state response, defaulting to offline");
-                return new PowerState("offline");
+                return null;
             }
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not reading power state");
+            return null;
         } catch (Exception e) {
-            log.error("Error getting power state from StingrayTV device at URL: {}", device.baseUrl(), e);
-            return new PowerState("offline");
+            log.error("Error getting power state from StingrayTV device at URL: {}", endpoint.baseUrl(), e);
+            return null;
         }
     }
 
@@ -59,7 +98,7 @@ public class StingrayTVService {
      */
     public boolean setPowerState(boolean powerOn) {
         try {
-            String baseUrl = device.baseUrl();
+            String baseUrl = endpoint.baseUrl();
             if (baseUrl == null) {
                 log.warn("Device base URL is null, cannot set power state");
                 return false;
@@ -69,18 +108,27 @@ public class StingrayTVService {
             Map<String, String> requestBody = Map.of("state", powerState);
             
             log.debug("Setting power state to '{}' on device at URL: {}", powerState, baseUrl + "/power");
+            sendPendingCommands();
 
-            restClient.put()
-                    .uri(baseUrl + "/power")
+            send(powerOn ? ReceiverCommand.POWER_ON : ReceiverCommand.POWER_OFF, () -> restClient.put()
+                    .uri(endpoint.baseUrl() + "/power")
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(requestBody)
                     .retrieve()
-                    .toBodilessEntity();
+                    .toBodilessEntity());
 
             log.info("Successfully set power state to '{}' on device at URL: {}", powerState, baseUrl);
+            eventPublisher.publishEvent(new CommandAppliedEvent(endpoint.serialNumber(),
+                    powerOn ? ReceiverCommand.POWER_ON : ReceiverCommand.POWER_OFF, 0));
             return true;
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not setting power state");
+            return false;
+        } catch (InterruptedException e) {
+            log.warn("Power state '{}' was withdrawn before it reached the device", powerOn ? "on" : "off");
+            return false;
         } catch (Exception e) {
-            log.error("Error setting power state '{}' on StingrayTV device at URL: {}", powerOn ? "on" : "off", device.baseUrl(), e);
+            log.error("Error setting power state '{}' on StingrayTV device at URL: {}", powerOn ? "on" : "off", endpoint.baseUrl(), e);
             return false;
         }
     }
@@ -91,42 +139,74 @@ public class StingrayTVService {
      * @return VolumeState object with the current volume state
      */
     public VolumeState getVolumeState() {
+        VolumeState volumeState = fetchVolumeState();
+        return volumeState != null ? volumeState : new VolumeState(20, 0);
+    }
+
+    /**
+     * Reads the current volume state from the StingrayTV device.
+     *
+     * @return VolumeState object, null if the state could not be read
+     */
+    VolumeState fetchVolumeState() {
         try {
-            String baseUrl = device.baseUrl();
+            String baseUrl = endpoint.baseUrl();
             if (baseUrl == null) {
                 log.warn("Device base URL is null, returning default volume state");
-                return new VolumeState(20, 0);
+                return null;
             }
 
             log.debug("Getting volume state from device at URL: {}", baseUrl + "/volume");
-            VolumeState response = restClient.get()
-                    .uri(baseUrl + "/volume")
+            VolumeState response = read(() -> restClient.get()
+                    .uri(endpoint.baseUrl() + "/volume")
                     .accept(MediaType.APPLICATION_JSON)
                     .retrieve()
-                    .body(VolumeState.class);
+                    .body(VolumeState.class));
 
             if (response != null) {
                 log.debug("Successfully retrieved volume state: {}", response.state);
                 return response;
             } else {
                 log.warn("Received null volume state response, defaulting to 0");
-                return new VolumeState(20, 0);
+                return null;
             }
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not reading volume state");
+            return null;
         } catch (Exception e) {
-            log.error("Error getting volume state from StingrayTV device at URL: {}", device.baseUrl(), e);
-            return new VolumeState(20, 0);
+            log.error("Error getting volume state from StingrayTV device at URL: {}", endpoint.baseUrl(), e);
+            return null;
         }
     }
 
     /**
      * Sets the volume of the StingrayTV device.
+     * Bursts of volume changes are coalesced, only the newest volume is sent to the device.
      *
      * @param volume the volume level to set
      * @return true if successful, false otherwise
      */
     public boolean setVolume(int volume) {
+        return volumeCoalescer.submit(volume);
+    }
+
+    /**
+     * Changes the volume of the StingrayTV device relative to the current volume.
+     * The current volume is taken from locally known state instead of being read from the device.
+     * Relative changes coalesced with pending ones are added up and sent as one absolute volume.
+     *
+     * @param delta volume change, negative to make it quieter
+     * @param currentVolume current volume level
+     * @param maxVolume highest volume level supported by the device
+     * @return true if successful, false otherwise
+     */
+    public boolean changeVolumeBy(int delta, int currentVolume, int maxVolume) {
+        return volumeCoalescer.submit(currentVolume, volume -> Math.clamp((long) volume + delta, 0, maxVolume));
+    }
+
+    private boolean sendVolume(int volume) {
         try {
-            String baseUrl = device.baseUrl();
+            String baseUrl = endpoint.baseUrl();
             if (baseUrl == null) {
                 log.warn("Device base URL is null, cannot set volume");
                 return false;
@@ -135,17 +215,24 @@ public class StingrayTVService {
             Map<String, Integer> requestBody = Map.of("state", volume);
             log.debug("Setting volume to '{}' on device at URL: {}", volume, baseUrl + "/volume");
 
-            restClient.put()
-                    .uri(baseUrl + "/volume")
+            send(ReceiverCommand.VOLUME, () -> restClient.put()
+                    .uri(endpoint.baseUrl() + "/volume")
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(requestBody)
                     .retrieve()
-                    .toBodilessEntity();
+                    .toBodilessEntity());
 
             log.info("Successfully set volume to '{}' on device at URL: {}", volume, baseUrl);
+            eventPublisher.publishEvent(new CommandAppliedEvent(endpoint.serialNumber(), ReceiverCommand.VOLUME, volume));
             return true;
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not setting volume");
+            return false;
+        } catch (InterruptedException e) {
+            log.warn("Volume '{}' was withdrawn before it reached the device", volume);
+            return false;
         } catch (Exception e) {
-            log.error("Error setting volume to '{}' on StingrayTV device at URL: {}", volume, device.baseUrl(), e);
+            log.error("Error setting volume to '{}' on StingrayTV device at URL: {}", volume, endpoint.baseUrl(), e);
             return false;
         }
     }
@@ -156,20 +243,29 @@ public class StingrayTVService {
      * @return ChannelState object with current channel information
      */
     public ChannelState getCurrentChannel() {
+        ChannelState channelState = fetchCurrentChannel();
+        return channelState != null ? channelState : new ChannelState(0, "Unknown");
+    }
+
+    /**
+     * Reads the current channel information from the StingrayTV device.
+     *
+     * @return ChannelState object, null if the state could not be read
+     */
+    ChannelState fetchCurrentChannel() {
         try {
-            String baseUrl = device.baseUrl();
+            String baseUrl = endpoint.baseUrl();
             if (baseUrl == null) {
                 log.warn("Device base URL is null, returning default channel state");
-                return new ChannelState(0, "Unknown");
+                return null;
             }
 
             log.debug("Getting current channel from device at URL: {}", baseUrl + "/channels/current");
-            ChannelState response = webClient.get()
-                    .uri(baseUrl + "/channels/current")
+            ChannelState response = read(() -> restClient.get()
+                    .uri(endpoint.baseUrl() + "/channels/current")
                     .accept(MediaType.APPLICATION_JSON)
                     .retrieve()
-                    .bodyToFlux(ChannelState.class)
-                    .blockFirst();
+                    .body(ChannelState.class));
 
             if (response != null) {
                 log.debug("Successfully retrieved current channel: {} (channel list ID: {})",
@@ -177,23 +273,48 @@ public class StingrayTVService {
                 return response;
             } else {
                 log.warn("Received null channel state response, defaulting to channel 0");
-                return new ChannelState(0, "Unknown");
+                return null;
             }
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not reading current channel");
+            return null;
         } catch (Exception e) {
-            log.error("Error getting current channel from StingrayTV device at URL: {}", device.baseUrl(), e);
-            return new ChannelState(0, "Unknown");
+            log.error("Error getting current channel from StingrayTV device at URL: {}", endpoint.baseUrl(), e);
+            return null;
         }
     }
 
     /**
      * Changes the channel on the StingrayTV device.
+     * Uses the channel catalog to validate the channel number and to get the channel list ID,
+     * so no extra request is needed before the change. Bursts of channel changes are coalesced,
+     * only the newest channel is sent to the device.
      *
      * @param channelNumber the channel number to change to
      * @return true if successful, false otherwise
      */
     public boolean changeChannel(int channelNumber) {
+        return channelCoalescer.submit(channelNumber);
+    }
+
+    /**
+     * Switches the channel on the StingrayTV device relative to the current channel.
+     * With a loaded channel catalog the steps skip channel numbers that do not exist.
+     * Relative changes coalesced with pending ones are added up and sent as one channel change.
+     *
+     * @param steps number of channels to move, negative to move down
+     * @param currentChannel current channel number
+     * @return true if successful, false otherwise
+     */
+    public boolean changeChannelBy(int steps, int currentChannel) {
+        return channelCoalescer.submit(currentChannel, channelNumber -> channelCatalog.isLoaded()
+                ? channelCatalog.offset(channelNumber, steps)
+                : Math.max(0, channelNumber + steps));
+    }
+
+    private boolean sendChannel(int channelNumber) {
         try {
-            String baseUrl = device.baseUrl();
+            String baseUrl = endpoint.baseUrl();
             if (baseUrl == null) {
                 log.warn("Device base URL is null, cannot change channel");
                 return false;
@@ -204,25 +325,45 @@ public class StingrayTVService {
                 return false;
             }
 
-            log.debug("Changing channel to '{}' on device at URL: {}", channelNumber, baseUrl + "/channels/current");
-            ChannelState channelState = getCurrentChannel();
+            String channelListId;
+            if (channelCatalog.isLoaded()) {
+                if (!channelCatalog.contains(channelNumber)) {
+                    log.warn("Invalid channel number: {}, not found in channel catalog", channelNumber);
+                    return false;
+                }
+                channelListId = channelCatalog.channelListId();
+            } else if (channelCatalog.channelListId() != null) {
+                // Catalog is not loaded yet, use the channel list ID known before the restart
+                channelListId = channelCatalog.channelListId();
+            } else {
+                // Catalog is not loaded yet, learn the channel list ID from the current channel
+                channelListId = getCurrentChannel().channelListId();
+            }
 
+            log.debug("Changing channel to '{}' on device at URL: {}", channelNumber, baseUrl + "/channels/current");
             Map<String, Object> requestBody = Map.of(
                     "channelNumber", channelNumber,
-                    "channelListId", channelState.channelListId()
+                    "channelListId", channelListId
             );
 
-            restClient.put()
-                    .uri(baseUrl + "/channels/current")
+            send(ReceiverCommand.CHANNEL, () -> restClient.put()
+                    .uri(endpoint.baseUrl() + "/channels/current")
                     .contentType(MediaType.APPLICATION_JSON)
                     .body(requestBody)
                     .retrieve()
-                    .toBodilessEntity();
+                    .toBodilessEntity());
 
             log.info("Successfully changed channel to '{}' on device at URL: {}", channelNumber, baseUrl);
+            eventPublisher.publishEvent(new CommandAppliedEvent(endpoint.serialNumber(), ReceiverCommand.CHANNEL, channelNumber));
             return true;
+        } catch (ReceiverUnavailableException e) {
+            log.debug("Receiver circuit is open, not changing channel");
+            return false;
+        } catch (InterruptedException e) {
+            log.warn("Channel '{}' was withdrawn before it reached the device", channelNumber);
+            return false;
         } catch (Exception e) {
-            log.error("Error changing channel to '{}' on StingrayTV device at URL: {}", channelNumber, device.baseUrl(), e);
+            log.error("Error changing channel to '{}' on StingrayTV device at URL: {}", channelNumber, endpoint.baseUrl(), e);
             return false;
         }
     }
@@ -233,68 +374,108 @@ public class StingrayTVService {
      * @return true if successful, false otherwise
      */
     public boolean mute() {
-        try {
-            String baseUrl = device.baseUrl();
-            if (baseUrl == null) {
-                log.warn("Device base URL is null, cannot send mute command");
-                return false;
-            }
+        return sendKeys(ReceiverCommand.MUTE, List.of("Volume Mute"));
+    }
 
-            Map<String, String> requestBody = Map.of("key", "Volume Mute");
-            log.debug("Sending mute command to device at URL: {}", baseUrl + "/input/events");
+    /**
+     * Sends a play/pause command to the StingrayTV device.
+     *
+     * @return true if successful, false otherwise
+     */
+    public boolean pause() {
+        return sendKeys(ReceiverCommand.PAUSE, List.of("Pause"));
+    }
 
-            restClient.post()
-                    .uri(baseUrl + "/input/events")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(requestBody)
-                    .retrieve()
-                    .toBodilessEntity();
+    /**
+     * Sends a sequence of remote control keys to the StingrayTV device,
+     * e.g. the digits of a channel number or menu navigation.
+     *
+     * @param keys key names in the order they are pressed
+     * @return true if all keys were sent, false otherwise
+     */
+    public boolean sendKeys(List<String> keys) {
+        return sendKeys(ReceiverCommand.KEYS, keys);
+    }
 
-            log.info("Successfully sent mute command to device at URL: {}", baseUrl);
-            return true;
-        } catch (Exception e) {
-            log.error("Error sending mute command to StingrayTV device at URL: {}", device.baseUrl(), e);
+    private boolean sendKeys(ReceiverCommand command, List<String> keys) {
+        sendPendingCommands();
+        if (!keyEventPipeline.send(keys)) {
             return false;
         }
+        eventPublisher.publishEvent(new CommandAppliedEvent(endpoint.serialNumber(), command, 0));
+        return true;
     }
 
     /**
-     * Sends a play/pause command to the StingrayTV device.
+     * Sends volume and channel changes still waiting in their coalescing window,
+     * so that a command that is not coalesced does not overtake them.
+     */
+    private void sendPendingCommands() {
+        volumeCoalescer.sendPending();
+        channelCoalescer.sendPending();
+    }
+
+    /**
+     * Sends a lightweight request to keep pooled connections to the device open.
      *
-     * @return true if successful, false otherwise
+     * @return true if the device answered, false otherwise
      */
-    public boolean pause() {
-        try {
-            String baseUrl = device.baseUrl();
-            if (baseUrl == null) {
-                log.warn("Device base URL is null, cannot send pause command");
-                return false;
-            }
+    public boolean ping() {
+        return fetchPowerState() != null;
+    }
 
-            Map<String, String> requestBody = Map.of("key", "Pause");
-            log.debug("Sending pause command to device at URL: {}", baseUrl + "/input/events");
+    /**
+     * Reads from the device through the retry policy and the circuit breaker.
+     *
+     * @param request read request
+     * @return request result
+     * @throws Exception the exception thrown by the request
+     */
+    private <T> T read(Callable<T> request) throws Exception {
+        return retryPolicy.read(() -> circuitBreaker.call(request));
+    }
 
-            restClient.post()
-                    .uri(baseUrl + "/input/events")
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(requestBody)
-                    .retrieve()
-                    .toBodilessEntity();
+    /**
+     * Sends a command to the device through the command queue, the retry policy and the circuit breaker.
+     * If the calling thread is interrupted before the command started, the command is withdrawn
+     * and an {@link InterruptedException} is thrown with the interrupt status kept.
+     *
+     * @param command command being sent, decides whether the request may be retried
+     * @param request request that sends the command
+     * @throws Exception the exception thrown by the request
+     */
+    private void send(ReceiverCommand command, Callable<?> request) throws Exception {
+        commandQueue.execute(CommandPriority.USER, () -> retryPolicy.execute(command, () -> circuitBreaker.call(request)));
+    }
 
-            log.info("Successfully sent pause command to device at URL: {}", baseUrl);
-            return true;
-        } catch (Exception e) {
-            log.error("Error sending pause command to StingrayTV device at URL: {}", device.baseUrl(), e);
-            return false;
-        }
+    /**
+     * Gets the serial number of the device this service controls.
+     *
+     * @return device serial number
+     */
+    public String serialNumber() {
+        return endpoint.serialNumber();
     }
 
+    @JsonDeserialize(using = ReceiverResponseDeserializers.PowerStateDeserializer.class)
     public record PowerState(String state) {
     }
 
+    @JsonDeserialize(using = ReceiverResponseDeserializers.VolumeStateDeserializer.class)
     public record VolumeState(int max, int state) {
     }
 
+    @JsonDeserialize(using = ReceiverResponseDeserializers.ChannelStateDeserializer.class)
     public record ChannelState(int channelNumber, String channelListId) {
     }
+
+    /**
+     * Event published after a command has been applied to the device.
+     *
+     * @param serialNumber serial number of the device
+     * @param command applied command
+     * @param value new volume or channel number, 0 for commands without a value
+     */
+    public record CommandAppliedEvent(String serialNumber, ReceiverCommand command, int value) {
+    }
 }
@@ -0,0 +1,196 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scans IPv4 subnets for hosts that accept connections on a port.
+ * Every host is probed on its own virtual thread with a short connect timeout, and a semaphore caps
+ * how many connection attempts are in flight, so a /24 is scanned in roughly one connect timeout.
+ * Used to find receivers on networks where multicast, and so mDNS, does not work.
+ */
+@Slf4j
+class SubnetScanner {
+
+    /**
+     * Shortest prefix that is scanned, larger subnets are narrowed to the /22 around the address.
+     */
+    static final int MIN_PREFIX_LENGTH = 22;
+
+    private final Duration connectTimeout;
+    private final Semaphore connectPermits;
+
+    /**
+     * @param connectTimeout how long to wait for a host to accept a connection
+     * @param maxConcurrency connection attempts in flight at the same time
+     */
+    SubnetScanner(Duration connectTimeout, int maxConcurrency) {
+        this.connectTimeout = connectTimeout;
+        this.connectPermits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Probes every host of the subnets and validates the hosts that accept a connection.
+     *
+     * @param subnets subnets to scan
+     * @param port port to connect to
+     * @param validator checks whether an open host is what is looked for
+     * @return validated results, in no particular order
+     * @throws InterruptedException if interrupted while scanning
+     */
+    <T> List<T> scan(List<Subnet> subnets, int port, Function<InetAddress, Optional<T>> validator)
+            throws InterruptedException {
+        Set<InetAddress> hosts = new LinkedHashSet<>();
+        subnets.forEach(subnet -> hosts.addAll(subnet.hosts()));
+        log.debug("Scanning {} hosts in {} on port {}", hosts.size(), subnets, port);
+
+        ConcurrentLinkedQueue<T> results = new ConcurrentLinkedQueue<>();
+        long startedAt = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (InetAddress host : hosts) {
+                executor.submit(() -> {
+                    if (isOpen(host, port)) {
+                        log.debug("Host {} accepts connections on port {}", host.getHostAddress(), port);
+                        validator.apply(host).ifPresent(results::add);
+                    }
+                    return null;
+                });
+            }
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException("Subnet scan interrupted");
+        }
+        log.info("Scanned {} hosts in {} ms, found {} matches", hosts.size(),
+                Duration.ofNanos(System.nanoTime() - startedAt).toMillis(), results.size());
+        return List.copyOf(results);
+    }
+
+    private boolean isOpen(InetAddress host, int port) throws InterruptedException {
+        connectPermits.acquire();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), (int) connectTimeout.toMillis());
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            connectPermits.release();
+        }
+    }
+
+    /**
+     * Gets the IPv4 subnets of all active, non-loopback interfaces.
+     *
+     * @return local subnets
+     */
+    static List<Subnet> localSubnets() {
+        List<Subnet> subnets = new ArrayList<>();
+        try {
+            for (NetworkInterface networkInterface : NetworkInterface.networkInterfaces().toList()) {
+                if (!networkInterface.isUp() || networkInterface.isLoopback()) {
+                    continue;
+                }
+                for (InterfaceAddress address : networkInterface.getInterfaceAddresses()) {
+                    if (address.getAddress() instanceof Inet4Address) {
+                        subnets.add(Subnet.of(address.getAddress(), address.getNetworkPrefixLength()));
+                    }
+                }
+            }
+        } catch (SocketException e) {
+            log.warn("Failed to list network interfaces: {}", e.getMessage());
+        }
+        return subnets;
+    }
+
+    /**
+     * IPv4 subnet.
+     *
+     * @param network network address as an int
+     * @param prefixLength length of the network prefix
+     */
+    record Subnet(int network, int prefixLength) {
+
+        /**
+         * Creates the subnet an address belongs to.
+         * Prefixes shorter than {@link SubnetScanner#MIN_PREFIX_LENGTH} are narrowed, so the scan stays short.
+         *
+         * @param address IPv4 address in the subnet
+         * @param prefixLength length of the network prefix
+         * @return subnet
+         */
+        static Subnet of(InetAddress address, int prefixLength) {
+            int length = Math.clamp(prefixLength, MIN_PREFIX_LENGTH, 32);
+            int mask = -1 << (32 - length);
+            return new Subnet(ByteBuffer.wrap(address.getAddress()).getInt() & mask, length);
+        }
+
+        /**
+         * Parses a subnet in CIDR notation, e.g. "192.168.1.0/24".
+         *
+         * @param cidr subnet in CIDR notation
+         * @return subnet
+         * @throws IllegalArgumentException if the subnet is not a valid IPv4 subnet
+         */
+        static Subnet parse(String cidr) {
+            int separator = cidr.indexOf('/');
+            try {
+                InetAddress address = InetAddress.getByName(separator < 0 ? cidr : cidr.substring(0, separator));
+                if (!(address instanceof Inet4Address)) {
+                    throw new IllegalArgumentException("Not an IPv4 subnet: " + cidr);
+                }
+                int prefixLength = separator < 0 ? 32 : Integer.parseInt(cidr.substring(separator + 1).trim());
+                return of(address, prefixLength);
+            } catch (UnknownHostException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid subnet: " + cidr, e);
+            }
+        }
+
+        /**
+         * Gets the host addresses of the subnet, without the network and broadcast addresses.
+         *
+         * @return host addresses
+         */
+        List<InetAddress> hosts() {
+            int size = 1 << (32 - prefixLength);
+            int first = size > 2 ? 1 : 0;
+            int last = size > 2 ? size - 2 : size - 1;
+            List<InetAddress> hosts = new ArrayList<>(last - first + 1);
+            for (int offset = first; offset <= last; offset++) {
+                try {
+                    hosts.add(InetAddress.getByAddress(ByteBuffer.allocate(4).putInt(network + offset).array()));
+                } catch (UnknownHostException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return hosts;
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = ByteBuffer.allocate(4).putInt(network).array();
+            return (bytes[0] & 0xff) + "." + (bytes[1] & 0xff) + "." + (bytes[2] & 0xff) + "." + (bytes[3] & 0xff)
+                    + "/" + prefixLength;
+        }
+    }
+}
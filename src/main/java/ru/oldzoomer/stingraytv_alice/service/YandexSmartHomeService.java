@@ -27,21 +27,24 @@ import java.util.Optional;
 public class YandexSmartHomeService {
 
     private final YandexSmartHomeGateway smartHomeGateway;
+    private final YandexStateNotifier stateNotifier;
+    private final ActionIdempotencyCache actionIdempotencyCache;
 
     /**
      * Processes user devices discovery request (GET without payload).
      * This method handles the initial device discovery request from Yandex Smart Home.
      *
+     * The response is written from the devices serialized in advance, so it is returned as JSON bytes.
+     *
      * @param requestId unique identifier for the request
-     * @return YandexSmartHomeResponse with device discovery information
+     * @return serialized response with device discovery information
      */
-    public YandexSmartHomeResponse processUserDevicesRequest(String requestId) {
+    public byte[] processUserDevicesRequest(String requestId) {
         log.debug("Processing user devices discovery request with ID: {}", requestId);
-        // Create a minimal request for discovery
-        YandexSmartHomeRequest request = new YandexSmartHomeRequest(null);
+        String userId = authenticateUser(requestId, "discovery request");
 
         // Pass user ID to gateway for inclusion in response
-        return processAuthenticatedRequest(request, requestId, "discovery request", QueryTypes.DEVICES_DISCOVERY);
+        return smartHomeGateway.processDiscoveryRequest(requestId, userId);
     }
 
     /**
@@ -60,6 +63,8 @@ public class YandexSmartHomeService {
     /**
      * Processes device action request.
      * This method handles requests to execute device actions from Yandex Smart Home.
+     * Yandex retries action requests with the same request ID, a retry gets the response
+     * of the first request instead of running the actions again.
      *
      * @param request the device action request payload
      * @param requestId unique identifier for the request
@@ -67,7 +72,9 @@ public class YandexSmartHomeService {
      */
     public YandexSmartHomeResponse processDeviceActionRequest(YandexSmartHomeRequest request, String requestId) {
         log.debug("Processing device action request with ID: {}", requestId);
-        return processAuthenticatedRequest(request, requestId, "device action", QueryTypes.DEVICES_ACTION);
+        String userId = authenticateUser(requestId, "device action");
+        return actionIdempotencyCache.execute(userId, requestId, () ->
+                smartHomeGateway.processRequest(request, requestId, userId, QueryTypes.DEVICES_ACTION));
     }
 
     /**
@@ -81,6 +88,7 @@ public class YandexSmartHomeService {
     public UserUnlinkResponse processUserUnlinkRequest(String requestId) {
         String userId = getCurrentUserId().orElse("unknown");
         log.info("Processing user unlink request from user: {}, request_id: {}", userId, requestId);
+        stateNotifier.unregisterUser(userId);
 
         return new UserUnlinkResponse(requestId);
     }
@@ -97,10 +105,22 @@ public class YandexSmartHomeService {
      */
     private YandexSmartHomeResponse processAuthenticatedRequest(YandexSmartHomeRequest request, String requestId,
                                                                     String requestType, QueryTypes queryTypes) {
+        String userId = authenticateUser(requestId, requestType);
+        return smartHomeGateway.processRequest(request, requestId, userId, queryTypes);
+    }
+
+    /**
+     * Gets the user of a request and registers it for state notifications.
+     *
+     * @param requestId unique identifier for the request
+     * @param requestType type of request being processed
+     * @return user ID, "unknown" if the request is not authenticated with a JWT
+     */
+    private String authenticateUser(String requestId, String requestType) {
         String userId = getCurrentUserId().orElse("unknown");
         log.info("Processing {} request from user: {}, request_id: {}", requestType, userId, requestId);
-
-        return smartHomeGateway.processRequest(request, requestId, userId, queryTypes);
+        getCurrentUserId().ifPresent(stateNotifier::registerUser);
+        return userId;
     }
 
     /**
@@ -0,0 +1,205 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClient;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.oldzoomer.stingraytv_alice.config.YandexCallbackProperties;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexCallbackRequest;
+
+/**
+ * Service for reporting device state changes to Yandex Smart Home.
+ * Changes detected by the device shadows are batched per device and capability, debounced and sent
+ * to the Yandex notification callback API with retries and a cap on requests in flight.
+ * The linked users are persisted by the {@link ReceiverSnapshotStore}, so notifications keep working after a restart.
+ */
+@Slf4j
+@Service
+public class YandexStateNotifier {
+
+    private static final String ON_OFF = "devices.capabilities.on_off";
+    private static final String RANGE = "devices.capabilities.range";
+
+    private final YandexCallbackProperties callbackProperties;
+    private final RestClient restClient;
+    private final ReceiverSnapshotStore snapshotStore;
+
+    private final Set<String> userIds = ConcurrentHashMap.newKeySet();
+    private final Map<String, Map<String, YandexCallbackRequest.Payload.Device.Capability>> pendingChanges =
+            new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Semaphore inFlight;
+
+    public YandexStateNotifier(YandexCallbackProperties callbackProperties, ReceiverSnapshotStore snapshotStore) {
+        this.callbackProperties = callbackProperties;
+        this.snapshotStore = snapshotStore;
+        this.userIds.addAll(snapshotStore.loadLinkedUsers());
+        this.inFlight = new Semaphore(callbackProperties.getMaxInFlight());
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(3));
+        requestFactory.setReadTimeout(Duration.ofSeconds(5));
+        this.restClient = RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl(callbackProperties.getUrl())
+                .defaultHeader("User-Agent", "StingrayTV-Alice/1.0")
+                .build();
+    }
+
+    /**
+     * Remembers a user that has to be notified about state changes.
+     *
+     * @param userId identifier of the authenticated user
+     */
+    public void registerUser(String userId) {
+        if (userIds.add(userId)) {
+            snapshotStore.saveLinkedUsers(userIds);
+        }
+    }
+
+    /**
+     * Stops notifying a user, e.g. after the account was unlinked.
+     *
+     * @param userId identifier of the user
+     */
+    public void unregisterUser(String userId) {
+        if (userIds.remove(userId)) {
+            snapshotStore.saveLinkedUsers(userIds);
+        }
+    }
+
+    /**
+     * Collects changed capabilities and schedules a debounced notification.
+     *
+     * @param event state change detected by the device shadow
+     */
+    @EventListener
+    public void onStateChanged(DeviceShadow.StateChangedEvent event) {
+        if (!callbackProperties.isEnabled()) {
+            return;
+        }
+
+        DeviceShadow.Snapshot previous = event.previous();
+        DeviceShadow.Snapshot current = event.current();
+        if (previous.powerOn() != current.powerOn()) {
+            addChange(event.serialNumber(), "on", ON_OFF, current.powerOn());
+        }
+        if (previous.channelNumber() != current.channelNumber()) {
+            addChange(event.serialNumber(), "channel", RANGE, current.channelNumber());
+        }
+        if (previous.volume() != current.volume()) {
+            addChange(event.serialNumber(), "volume", RANGE, current.volume());
+        }
+
+        if (!pendingChanges.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("yandex-state-notifier").start(this::flushAfterDebounce);
+        }
+    }
+
+    private void addChange(String serialNumber, String instance, String type, Object value) {
+        YandexCallbackRequest.Payload.Device.Capability capability = new YandexCallbackRequest.Payload.Device.Capability(
+                type, new YandexCallbackRequest.Payload.Device.Capability.State(instance, value));
+        // Changes are added inside compute, so a concurrent flush never removes a map that is being updated
+        pendingChanges.compute(serialNumber, (key, changes) -> {
+            Map<String, YandexCallbackRequest.Payload.Device.Capability> updated =
+                    changes != null ? changes : new ConcurrentHashMap<>();
+            updated.put(instance, capability);
+            return updated;
+        });
+    }
+
+    private void flushAfterDebounce() {
+        try {
+            Thread.sleep(callbackProperties.getDebounce());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            flushScheduled.set(false);
+        }
+
+        List<YandexCallbackRequest.Payload.Device> devices = new ArrayList<>();
+        for (String serialNumber : List.copyOf(pendingChanges.keySet())) {
+            Map<String, YandexCallbackRequest.Payload.Device.Capability> changes = pendingChanges.remove(serialNumber);
+            if (changes != null && !changes.isEmpty()) {
+                devices.add(new YandexCallbackRequest.Payload.Device(serialNumber, List.copyOf(changes.values())));
+            }
+        }
+
+        if (devices.isEmpty()) {
+            return;
+        }
+        if (userIds.isEmpty()) {
+            log.warn("Dropping state changes of {} devices, no linked user is known yet", devices.size());
+            return;
+        }
+
+        for (String userId : userIds) {
+            send(userId, devices);
+        }
+    }
+
+    private void send(String userId, List<YandexCallbackRequest.Payload.Device> devices) {
+        YandexCallbackRequest request = new YandexCallbackRequest(
+                System.currentTimeMillis() / 1000.0,
+                new YandexCallbackRequest.Payload(userId, devices));
+
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            Duration backoff = callbackProperties.getInitialBackoff();
+            for (int attempt = 1; attempt <= callbackProperties.getMaxAttempts(); attempt++) {
+                try {
+                    restClient.post()
+                            .uri("/api/v1/skills/{skillId}/callback/state", callbackProperties.getSkillId())
+                            .header(HttpHeaders.AUTHORIZATION, "OAuth " + callbackProperties.getToken())
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .body(request)
+                            .retrieve()
+                            .toBodilessEntity();
+
+                    log.info("Reported state changes of {} devices to Yandex for user: {}", devices.size(), userId);
+                    return;
+                } catch (HttpClientErrorException e) {
+                    if (e.getStatusCode().value() != 429) {
+                        log.error("Yandex rejected state notification for user: {}, status: {}",
+                                userId, e.getStatusCode());
+                        return;
+                    }
+                    log.warn("Yandex rate limited state notification, attempt {}", attempt);
+                } catch (Exception e) {
+                    log.warn("Failed to send state notification to Yandex, attempt {}: {}", attempt, e.getMessage());
+                }
+
+                if (attempt < callbackProperties.getMaxAttempts()) {
+                    Thread.sleep(backoff);
+                    backoff = backoff.multipliedBy(2);
+                }
+            }
+            log.error("Giving up on state notification for user: {}", userId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.release();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.oldzoomer.stingraytv_alice.util;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Scope for running a few blocking calls concurrently on virtual threads.
+ * Mirrors the shutdown-on-failure structured concurrency policy: {@link #join(Duration)}
+ * waits until all forked calls complete, and the first failure or an expired deadline
+ * interrupts the calls that are still running. No forked thread outlives the scope.
+ */
+public final class ParallelScope implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CompletionService<Object> completionService = new ExecutorCompletionService<>(executor);
+    private int forked;
+
+    /**
+     * Starts the call in its own virtual thread.
+     *
+     * @param call call to run
+     * @return future holding the result once {@link #join(Duration)} returned normally
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> fork(Callable<? extends T> call) {
+        forked++;
+        return (Future<T>) completionService.submit(call::call);
+    }
+
+    /**
+     * Waits for all forked calls to complete within the timeout.
+     *
+     * @param timeout time budget for all calls together
+     * @throws ExecutionException if any call failed, the remaining calls are cancelled
+     * @throws TimeoutException if the budget expired, the remaining calls are cancelled
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    public void join(Duration timeout) throws ExecutionException, TimeoutException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (int i = 0; i < forked; i++) {
+                Future<Object> done = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new TimeoutException("Parallel calls did not complete within " + timeout);
+                }
+                done.get();
+            }
+        } catch (ExecutionException | TimeoutException | InterruptedException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        executor.close();
+    }
+}
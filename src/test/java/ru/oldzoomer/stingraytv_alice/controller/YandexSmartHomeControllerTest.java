@@ -52,7 +52,7 @@ class YandexSmartHomeControllerTest {
         String requestId = "unlink-request-id-123";
         YandexSmartHomeResponse response = new YandexSmartHomeResponse(requestId, "ok", null, null, null);
 
-        when(smartHomeService.processUserDevicesRequest(requestId)).thenReturn(response);
+        when(smartHomeService.processUserDevicesRequest(requestId)).thenReturn(objectMapper.writeValueAsBytes(response));
 
         // Act & Assert
         mockMvc.perform(get("/v1.0/user/devices")
@@ -0,0 +1,80 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CapabilityActionDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void deserialize_BindsTypedActionsWhateverTheFieldOrder() {
+        // Arrange
+        String json = """
+                {"payload":{"devices":[{"id":"SN-1","capabilities":[
+                  {"type":"devices.capabilities.on_off","state":{"instance":"on","value":true}},
+                  {"state":{"relative":true,"value":-3,"instance":"volume"},"type":"devices.capabilities.range"},
+                  {"type":"devices.capabilities.toggle","state":{"instance":"mute","value":false}},
+                  {"type":"devices.capabilities.mode","state":{"instance":"input_source","value":"one"}}
+                ]}]}}""";
+
+        // Act
+        YandexSmartHomeRequest request = objectMapper.readValue(json, YandexSmartHomeRequest.class);
+
+        // Assert
+        assertThat(request.payload().devices().getFirst().capabilities()).containsExactly(
+                new CapabilityAction.OnOff("on", true),
+                new CapabilityAction.Range("volume", -3, true),
+                new CapabilityAction.Toggle("mute", false),
+                new CapabilityAction.Mode("input_source", "one"));
+    }
+
+    @Test
+    void deserialize_MalformedActions_AreRejectedPerCapability() {
+        // Arrange
+        String json = """
+                {"payload":{"devices":[{"id":"SN-1","capabilities":[
+                  {"type":"devices.capabilities.range","state":{"instance":"volume","value":"loud"}},
+                  {"type":"devices.capabilities.on_off","state":{"value":true}},
+                  {"type":"devices.capabilities.color_setting","state":{"instance":"rgb","value":255}},
+                  {"type":"devices.capabilities.range","state":{"instance":"channel","value":12}}
+                ]}]}}""";
+
+        // Act
+        List<CapabilityAction> actions = objectMapper.readValue(json, YandexSmartHomeRequest.class)
+                .payload().devices().getFirst().capabilities();
+
+        // Assert
+        assertThat(actions).hasSize(4);
+        assertThat(actions.get(0)).isInstanceOfSatisfying(CapabilityAction.Invalid.class,
+                invalid -> assertThat(invalid.errorCode()).isEqualTo("INVALID_VALUE"));
+        assertThat(actions.get(1)).isInstanceOfSatisfying(CapabilityAction.Invalid.class,
+                invalid -> assertThat(invalid.errorCode()).isEqualTo("INVALID_VALUE"));
+        assertThat(actions.get(2)).isInstanceOfSatisfying(CapabilityAction.Invalid.class,
+                invalid -> assertThat(invalid.errorCode()).isEqualTo("INVALID_ACTION"));
+        assertThat(actions.get(3)).isEqualTo(new CapabilityAction.Range("channel", 12, false));
+    }
+
+    @Test
+    void deserialize_FloatRangeValue_AcceptedOnlyWithoutFraction() {
+        // Arrange
+        String json = """
+                {"payload":{"devices":[{"id":"SN-1","capabilities":[
+                  {"type":"devices.capabilities.range","state":{"instance":"volume","value":5.0}},
+                  {"type":"devices.capabilities.range","state":{"instance":"volume","value":5.5}}
+                ]}]}}""";
+
+        // Act
+        List<CapabilityAction> actions = objectMapper.readValue(json, YandexSmartHomeRequest.class)
+                .payload().devices().getFirst().capabilities();
+
+        // Assert
+        assertThat(actions.get(0)).isEqualTo(new CapabilityAction.Range("volume", 5, false));
+        assertThat(actions.get(1)).isInstanceOfSatisfying(CapabilityAction.Invalid.class,
+                invalid -> assertThat(invalid.errorCode()).isEqualTo("INVALID_VALUE"));
+    }
+}
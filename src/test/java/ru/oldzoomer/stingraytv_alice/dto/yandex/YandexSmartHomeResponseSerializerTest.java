@@ -0,0 +1,55 @@
+package ru.oldzoomer.stingraytv_alice.dto.yandex;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ValueSerializer;
+import tools.jackson.databind.annotation.JsonSerialize;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class YandexSmartHomeResponseSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper reflectiveMapper = JsonMapper.builder()
+            .addMixIn(YandexSmartHomeResponse.class, Reflective.class)
+            .addMixIn(YandexSmartHomeResponse.Payload.Device.class, Reflective.class)
+            .build();
+
+    @Test
+    void serialize_WritesSameJsonAsReflectiveBinding() {
+        // Arrange
+        YandexSmartHomeResponse response = new YandexSmartHomeResponse("req-1", "ok", null, null,
+                new YandexSmartHomeResponse.Payload("user-1", List.of(
+                        new YandexSmartHomeResponse.Payload.Device("SN-1", "GS B622L", "Receiver", "Зал",
+                                "devices.types.media_device.receiver",
+                                List.of(new YandexSmartHomeResponse.Payload.Device.Capability(
+                                        "devices.capabilities.range", true,
+                                        Map.of("instance", "channel", "random_access", true,
+                                                "range", Map.of("min", 0, "max", 350, "precision", 1)),
+                                        Map.of("instance", "channel", "value", 12))),
+                                List.of(),
+                                new YandexSmartHomeResponse.Payload.Device.StatusInfo(true),
+                                new YandexSmartHomeResponse.Payload.Device.DeviceInfo("General Satellite",
+                                        "GS B622L", "hw", "sw"),
+                                null, null, null),
+                        new YandexSmartHomeResponse.Payload.Device("SN-2", null, null, null, null, null, null,
+                                null, null, null, null,
+                                Map.of("status", "ERROR", "error_code", "DEVICE_UNREACHABLE",
+                                        "error_message", "Receiver is not responding")))));
+
+        // Act
+        byte[] json = objectMapper.writeValueAsBytes(response);
+
+        // Assert
+        assertThat(objectMapper.readTree(json)).isEqualTo(reflectiveMapper.readTree(
+                reflectiveMapper.writeValueAsBytes(response)));
+    }
+
+    @JsonSerialize(using = ValueSerializer.None.class)
+    private interface Reflective {
+    }
+}
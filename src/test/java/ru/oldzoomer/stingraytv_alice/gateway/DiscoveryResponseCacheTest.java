@@ -0,0 +1,128 @@
+package ru.oldzoomer.stingraytv_alice.gateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
+import ru.oldzoomer.stingraytv_alice.service.ChannelCatalog;
+import ru.oldzoomer.stingraytv_alice.service.Receiver;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverEndpoint;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverRegistry;
+import ru.oldzoomer.stingraytv_alice.service.StingrayDeviceDiscoveryService;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DiscoveryResponseCacheTest {
+
+    private static final int BENCHMARK_ITERATIONS = 20_000;
+
+    @Mock
+    private StingrayConfigurationProperties stingrayConfigurationProperties;
+
+    @Mock
+    private ReceiverRegistry receiverRegistry;
+
+    @Mock
+    private ChannelCatalog channelCatalog;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private DiscoveryResponseCache discoveryResponseCache;
+
+    @BeforeEach
+    void setUp() {
+        when(stingrayConfigurationProperties.getDeviceDescription()).thenReturn("Спутниковый ресивер");
+        when(stingrayConfigurationProperties.getRoom()).thenReturn("Зал");
+        when(channelCatalog.maxChannelNumber(9999)).thenReturn(350);
+        when(receiverRegistry.receivers()).thenReturn(List.of(receiver("SN-2"), receiver("SN-1")));
+        discoveryResponseCache = new DiscoveryResponseCache(stingrayConfigurationProperties, receiverRegistry,
+                objectMapper);
+    }
+
+    @Test
+    void write_ReturnsSameJsonAsSerializedResponse() {
+        // Arrange
+        YandexSmartHomeResponse expected = new YandexSmartHomeResponse("req-\"1\"", "ok", null, null,
+                new YandexSmartHomeResponse.Payload("user-1", discoveryResponseCache.devices()));
+
+        // Act
+        byte[] response = discoveryResponseCache.write("req-\"1\"", "user-1");
+
+        // Assert
+        JsonNode json = objectMapper.readTree(response);
+        assertThat(json).isEqualTo(objectMapper.valueToTree(expected));
+        assertThat(json.at("/payload/devices/0/id").asString()).isEqualTo("SN-1");
+        assertThat(json.at("/payload/devices/0/capabilities/2/parameters/range/max").asInt()).isEqualTo(350);
+    }
+
+    @Test
+    void onReceiverUpdated_RebuildsDevices() {
+        // Arrange
+        discoveryResponseCache.devices();
+        when(channelCatalog.maxChannelNumber(9999)).thenReturn(400);
+
+        // Act
+        discoveryResponseCache.onReceiverUpdated(new ReceiverRegistry.ReceiverUpdatedEvent(receiver("SN-1")));
+
+        // Assert
+        JsonNode json = objectMapper.readTree(discoveryResponseCache.write("req-2", "user-1"));
+        assertThat(json.at("/payload/devices/0/capabilities/2/parameters/range/max").asInt()).isEqualTo(400);
+    }
+
+    /**
+     * Allocation benchmark: bytes allocated per discovery response when only the request ID
+     * and user ID are written, compared to serializing the whole response on every request.
+     */
+    @Test
+    void write_AllocatesLessThanSerializingResponse() {
+        // Arrange
+        List<YandexSmartHomeResponse.Payload.Device> devices = discoveryResponseCache.devices();
+        Supplier<byte[]> serialized = () -> objectMapper.writeValueAsBytes(new YandexSmartHomeResponse("req-1",
+                "ok", null, null, new YandexSmartHomeResponse.Payload("user-1", devices)));
+        Supplier<byte[]> cached = () -> discoveryResponseCache.write("req-1", "user-1");
+
+        // Act
+        long serializedBytes = allocatedBytesPerCall(serialized);
+        long cachedBytes = allocatedBytesPerCall(cached);
+
+        // Assert
+        assertThat(cachedBytes)
+                .as("allocated bytes per response, cached %d vs serialized %d", cachedBytes, serializedBytes)
+                .isLessThan(serializedBytes);
+    }
+
+    private static long allocatedBytesPerCall(Supplier<byte[]> response) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            response.get();
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        long length = 0;
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            length += response.get().length;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertThat(length).isPositive();
+        return allocated / BENCHMARK_ITERATIONS;
+    }
+
+    private Receiver receiver(String serialNumber) {
+        StingrayDeviceDiscoveryService.Device device = new StingrayDeviceDiscoveryService.Device(
+                "http://192.168.1.10:50000/v1.6", "GS B622L", serialNumber, "hw", "sw");
+        return new Receiver(new ReceiverEndpoint(device), null, null, null, channelCatalog, null, null);
+    }
+}
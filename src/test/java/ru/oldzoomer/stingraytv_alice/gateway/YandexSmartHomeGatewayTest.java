@@ -0,0 +1,352 @@
+package ru.oldzoomer.stingraytv_alice.gateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.CapabilityAction;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeRequest;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
+import ru.oldzoomer.stingraytv_alice.enums.QueryTypes;
+import ru.oldzoomer.stingraytv_alice.service.ChannelCatalog;
+import ru.oldzoomer.stingraytv_alice.service.DeviceShadow;
+import ru.oldzoomer.stingraytv_alice.service.Receiver;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverCircuitBreaker;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverEndpoint;
+import ru.oldzoomer.stingraytv_alice.service.ReceiverRegistry;
+import ru.oldzoomer.stingraytv_alice.service.StingrayDeviceDiscoveryService;
+import ru.oldzoomer.stingraytv_alice.service.StingrayTVService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class YandexSmartHomeGatewayTest {
+
+    @Mock
+    private StingrayConfigurationProperties stingrayConfigurationProperties;
+
+    @Mock
+    private StingrayTVService stingrayTVService;
+
+    @Mock
+    private StingrayDeviceDiscoveryService.Device stingrayDevice;
+
+    @Mock
+    private ChannelCatalog channelCatalog;
+
+    @Mock
+    private DeviceShadow deviceShadow;
+
+    @Mock
+    private ReceiverCircuitBreaker circuitBreaker;
+
+    @Mock
+    private ReceiverRegistry receiverRegistry;
+
+    @Mock
+    private DiscoveryResponseCache discoveryResponseCache;
+
+    @InjectMocks
+    private YandexSmartHomeGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        when(stingrayDevice.serialNumber()).thenReturn("SN-1");
+        when(stingrayConfigurationProperties.getQueryTimeout()).thenReturn(Duration.ofSeconds(5));
+        when(stingrayConfigurationProperties.getActionTimeout()).thenReturn(Duration.ofSeconds(5));
+        Receiver receiver = new Receiver(new ReceiverEndpoint(stingrayDevice), null, null, circuitBreaker, channelCatalog,
+                stingrayTVService, deviceShadow);
+        when(receiverRegistry.receivers()).thenReturn(List.of(receiver));
+        when(receiverRegistry.find("SN-1")).thenReturn(Optional.of(receiver));
+    }
+
+    @Test
+    void processRequest_Query_ServesStateFromShadowWithoutReceiverCalls() {
+        // Arrange
+        when(deviceShadow.snapshot())
+                .thenReturn(new DeviceShadow.Snapshot(true, true, 7, 20, false, 5, Instant.now()));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(null, "req-1", "user-1", QueryTypes.DEVICES_QUERY);
+
+        // Assert
+        assertThat(response.status()).isEqualTo("ok");
+        assertThat(response.payload().devices().getFirst().capabilities())
+                .extracting(YandexSmartHomeResponse.Payload.Device.Capability::state)
+                .containsExactly(
+                        Map.of("instance", "on", "value", true),
+                        Map.of("instance", "channel", "value", 5),
+                        Map.of("instance", "volume", "value", 7));
+        verifyNoInteractions(stingrayTVService);
+    }
+
+    @Test
+    void processRequest_QueryWhenDeviceUnreachable_ReturnsDeviceUnreachable() {
+        // Arrange
+        when(deviceShadow.snapshot())
+                .thenReturn(new DeviceShadow.Snapshot(false, false, 0, 20, false, 0, Instant.now()));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(null, "req-2", "user-1", QueryTypes.DEVICES_QUERY);
+
+        // Assert
+        assertThat(response.status()).isEqualTo("ok");
+        YandexSmartHomeResponse.Payload.Device device = response.payload().devices().getFirst();
+        assertThat(device.id()).isEqualTo("SN-1");
+        assertThat(device.errorCode()).isEqualTo("DEVICE_UNREACHABLE");
+        assertThat(device.capabilities()).isNull();
+    }
+
+    @Test
+    void processRequest_QueryWhenCircuitOpen_ReturnsDeviceUnreachableWithoutPolling() {
+        // Arrange
+        when(circuitBreaker.isOpen()).thenReturn(true);
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(null, "req-3", "user-1", QueryTypes.DEVICES_QUERY);
+
+        // Assert
+        assertThat(response.payload().devices().getFirst().errorCode()).isEqualTo("DEVICE_UNREACHABLE");
+        verifyNoInteractions(deviceShadow);
+    }
+
+    @Test
+    void processRequest_QueryForSlowDevice_ReportsItUnreachable() {
+        // Arrange
+        when(stingrayConfigurationProperties.getQueryTimeout()).thenReturn(Duration.ofMillis(100));
+        when(deviceShadow.snapshot())
+                .thenReturn(new DeviceShadow.Snapshot(true, true, 7, 20, false, 5, Instant.now()));
+        DeviceShadow slowShadow = mock(DeviceShadow.class);
+        when(slowShadow.snapshot()).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return null;
+        });
+        Receiver slowReceiver = new Receiver(new ReceiverEndpoint(stingrayDevice), null, null,
+                mock(ReceiverCircuitBreaker.class), channelCatalog, stingrayTVService, slowShadow);
+        when(receiverRegistry.find("SN-2")).thenReturn(Optional.of(slowReceiver));
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-2", null),
+                        new YandexSmartHomeRequest.Payload.Device("SN-1", null))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-4", "user-1", QueryTypes.DEVICES_QUERY);
+
+        // Assert
+        assertThat(response.status()).isEqualTo("ok");
+        assertThat(response.payload().devices().getFirst().errorCode()).isEqualTo("DEVICE_UNREACHABLE");
+        assertThat(response.payload().devices().get(1).capabilities()).hasSize(3);
+    }
+
+    @Test
+    void processRequest_QueryBeforeReceiverDiscovered_ReturnsDeviceUnreachable() {
+        // Arrange
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-2", null))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-7", "user-1", QueryTypes.DEVICES_QUERY);
+
+        // Assert
+        assertThat(response.status()).isEqualTo("ok");
+        YandexSmartHomeResponse.Payload.Device device = response.payload().devices().getFirst();
+        assertThat(device.id()).isEqualTo("SN-2");
+        assertThat(device.errorCode()).isEqualTo("DEVICE_UNREACHABLE");
+    }
+
+    @Test
+    void processRequest_ActionWhenCircuitOpen_ReturnsDeviceUnreachableWithoutSending() {
+        // Arrange
+        when(circuitBreaker.isFailingFast()).thenReturn(true);
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-1",
+                        List.of(new CapabilityAction.OnOff("on", true))))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-4", "user-1", QueryTypes.DEVICES_ACTION);
+
+        // Assert
+        assertThat(response.payload().devices().getFirst().actionResult())
+                .containsEntry("status", "ERROR")
+                .containsEntry("error_code", "DEVICE_UNREACHABLE");
+        verifyNoInteractions(stingrayTVService);
+    }
+
+    @Test
+    void processRequest_RelativeVolumeAction_UsesShadowStateAndRealMaximum() {
+        // Arrange
+        when(deviceShadow.snapshot())
+                .thenReturn(new DeviceShadow.Snapshot(true, true, 18, 30, false, 5, Instant.now()));
+        when(stingrayTVService.changeVolumeBy(3, 18, 30)).thenReturn(true);
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-1",
+                        List.of(new CapabilityAction.Range("volume", 3, true))))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-5", "user-1", QueryTypes.DEVICES_ACTION);
+
+        // Assert
+        assertThat(response.status()).isEqualTo("ok");
+        verify(stingrayTVService).changeVolumeBy(3, 18, 30);
+    }
+
+    @Test
+    void processRequest_ActionForSeveralDevices_ReportsEveryDevice() {
+        // Arrange
+        when(stingrayTVService.setPowerState(true)).thenReturn(true);
+        CapabilityAction powerOn = new CapabilityAction.OnOff("on", true);
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-1", List.of(powerOn)),
+                        new YandexSmartHomeRequest.Payload.Device("SN-2", List.of(powerOn)))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-6", "user-1", QueryTypes.DEVICES_ACTION);
+
+        // Assert
+        assertThat(response.status()).isEqualTo("ok");
+        assertThat(response.payload().devices())
+                .extracting(YandexSmartHomeResponse.Payload.Device::id)
+                .containsExactly("SN-1", "SN-2");
+        assertThat(response.payload().devices().getFirst().actionResult()).isNull();
+        assertThat(response.payload().devices().get(1).actionResult())
+                .containsEntry("error_code", "DEVICE_UNREACHABLE");
+        verify(stingrayTVService).setPowerState(true);
+    }
+
+    @Test
+    void processRequest_ActionRejectedWhileParsing_ReportsInvalidValueWithoutSendingIt() {
+        // Arrange
+        when(stingrayTVService.setPowerState(true)).thenReturn(true);
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-1", List.of(
+                        new CapabilityAction.OnOff("on", true),
+                        new CapabilityAction.Invalid(CapabilityAction.RANGE, "volume", "INVALID_VALUE",
+                                "Value of range must be an integer number"))))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-8", "user-1", QueryTypes.DEVICES_ACTION);
+
+        // Assert
+        assertThat(response.payload().devices().getFirst().capabilities())
+                .extracting(YandexSmartHomeResponse.Payload.Device.Capability::state)
+                .containsExactly(
+                        Map.of("instance", "on", "action_result", Map.of("status", "DONE")),
+                        Map.of("instance", "volume", "action_result", Map.of("status", "ERROR",
+                                "error_code", "INVALID_VALUE",
+                                "error_message", "Value of range must be an integer number")));
+        verify(stingrayTVService).setPowerState(true);
+        verify(stingrayTVService, never()).setVolume(anyInt());
+    }
+
+    @Test
+    void processRequest_ActionWithPowerOn_TurnsReceiverOnBeforeOtherActions() {
+        // Arrange
+        when(stingrayTVService.setPowerState(true)).thenReturn(true);
+        when(stingrayTVService.changeChannel(12)).thenReturn(true);
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-1", List.of(
+                        new CapabilityAction.Range("channel", 12, false),
+                        new CapabilityAction.OnOff("on", true))))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-9", "user-1", QueryTypes.DEVICES_ACTION);
+
+        // Assert
+        assertThat(response.payload().devices().getFirst().capabilities())
+                .extracting(YandexSmartHomeResponse.Payload.Device.Capability::type)
+                .containsExactly("devices.capabilities.range", "devices.capabilities.on_off");
+        InOrder inOrder = inOrder(stingrayTVService);
+        inOrder.verify(stingrayTVService).setPowerState(true);
+        inOrder.verify(stingrayTVService).changeChannel(12);
+    }
+
+    @Test
+    void processRequest_IndependentActions_RunInParallelWithOwnResults() {
+        // Arrange
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        when(stingrayTVService.setVolume(10)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            return bothStarted.await(2, TimeUnit.SECONDS);
+        });
+        when(stingrayTVService.changeChannel(12)).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            bothStarted.await(2, TimeUnit.SECONDS);
+            return false;
+        });
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-1", List.of(
+                        new CapabilityAction.Range("volume", 10, false),
+                        new CapabilityAction.Range("channel", 12, false))))));
+
+        // Act
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-10", "user-1", QueryTypes.DEVICES_ACTION);
+
+        // Assert
+        YandexSmartHomeResponse.Payload.Device device = response.payload().devices().getFirst();
+        assertThat(device.actionResult()).isNull();
+        assertThat(device.capabilities())
+                .extracting(YandexSmartHomeResponse.Payload.Device.Capability::state)
+                .containsExactly(
+                        Map.of("instance", "volume", "action_result", Map.of("status", "DONE")),
+                        Map.of("instance", "channel", "action_result", Map.of("status", "ERROR",
+                                "error_code", "INTERNAL_ERROR", "error_message", "Failed to execute action")));
+    }
+
+    @Test
+    void processRequest_ActionForSlowDevice_DoesNotHoldBackOtherDevices() {
+        // Arrange
+        when(stingrayConfigurationProperties.getActionTimeout()).thenReturn(Duration.ofMillis(200));
+        when(stingrayTVService.setPowerState(true)).thenReturn(true);
+        StingrayTVService slowService = mock(StingrayTVService.class);
+        when(slowService.setPowerState(true)).thenAnswer(invocation -> {
+            Thread.sleep(10_000);
+            return true;
+        });
+        Receiver slowReceiver = new Receiver(new ReceiverEndpoint(stingrayDevice), null, null,
+                mock(ReceiverCircuitBreaker.class), channelCatalog, slowService, deviceShadow);
+        when(receiverRegistry.find("SN-2")).thenReturn(Optional.of(slowReceiver));
+        CapabilityAction powerOn = new CapabilityAction.OnOff("on", true);
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(new YandexSmartHomeRequest.Payload("user-1",
+                List.of(new YandexSmartHomeRequest.Payload.Device("SN-2", List.of(powerOn)),
+                        new YandexSmartHomeRequest.Payload.Device("SN-1", List.of(powerOn)))));
+
+        // Act
+        long startedAt = System.nanoTime();
+        YandexSmartHomeResponse response = gateway.processRequest(request, "req-11", "user-1", QueryTypes.DEVICES_ACTION);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(elapsedMs).isLessThan(5000);
+        assertThat(response.payload().devices())
+                .extracting(YandexSmartHomeResponse.Payload.Device::id)
+                .containsExactly("SN-2", "SN-1");
+        assertThat(response.payload().devices().getFirst().capabilities())
+                .extracting(YandexSmartHomeResponse.Payload.Device.Capability::state)
+                .containsExactly(Map.of("instance", "on", "action_result", Map.of("status", "ERROR",
+                        "error_code", "DEVICE_UNREACHABLE", "error_message", "Action did not complete in time")));
+        assertThat(response.payload().devices().get(1).capabilities())
+                .extracting(YandexSmartHomeResponse.Payload.Device.Capability::state)
+                .containsExactly(Map.of("instance", "on", "action_result", Map.of("status", "DONE")));
+    }
+}
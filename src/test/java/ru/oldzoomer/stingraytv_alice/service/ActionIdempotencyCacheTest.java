@@ -0,0 +1,110 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ActionIdempotencyCacheTest {
+
+    private final ActionIdempotencyCache cache = new ActionIdempotencyCache(16, Duration.ofMinutes(1), Duration.ofSeconds(5));
+
+    @Test
+    void execute_WhenRetriedWhileRunning_ShouldWaitForFirstResponse() throws Exception {
+        // Arrange
+        YandexSmartHomeResponse response = new YandexSmartHomeResponse("req-1", "ok", null, null, null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        // Act
+        CompletableFuture<YandexSmartHomeResponse> first = CompletableFuture.supplyAsync(() ->
+                cache.execute("user-1", "req-1", () -> {
+                    executions.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return response;
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<YandexSmartHomeResponse> retry = CompletableFuture.supplyAsync(() ->
+                cache.execute("user-1", "req-1", () -> {
+                    executions.incrementAndGet();
+                    return null;
+                }));
+        release.countDown();
+
+        // Assert
+        assertThat(first.get(5, TimeUnit.SECONDS)).isSameAs(response);
+        assertThat(retry.get(5, TimeUnit.SECONDS)).isSameAs(response);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void execute_WhenFirstAttemptFailed_ShouldExecuteRetry() {
+        // Arrange
+        YandexSmartHomeResponse response = new YandexSmartHomeResponse("req-1", "ok", null, null, null);
+
+        // Act
+        assertThatThrownBy(() -> cache.execute("user-1", "req-1", () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+        YandexSmartHomeResponse result = cache.execute("user-1", "req-1", () -> response);
+
+        // Assert
+        assertThat(result).isSameAs(response);
+        assertThat(cache.execute("user-2", "req-1",
+                () -> new YandexSmartHomeResponse("req-1", "ok", "other", null, null)))
+                .isNotSameAs(response);
+    }
+
+    @Test
+    void execute_WhenFirstResponseTakesLongerThanActionTimeout_ReportsRetryUnreachable() throws Exception {
+        // Arrange
+        ActionIdempotencyCache shortCache = new ActionIdempotencyCache(16, Duration.ofMinutes(1), Duration.ofMillis(100));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture.supplyAsync(() -> shortCache.execute("user-1", "req-1", () -> {
+            started.countDown();
+            await(release);
+            return new YandexSmartHomeResponse("req-1", "ok", null, null, null);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act
+        YandexSmartHomeResponse retry = shortCache.execute("user-1", "req-1", () -> null);
+        release.countDown();
+
+        // Assert
+        assertThat(retry.status()).isEqualTo("error");
+        assertThat(retry.errorCode()).isEqualTo("DEVICE_UNREACHABLE");
+    }
+
+    @Test
+    void execute_WithSlashInIds_DoesNotMixUpUsers() {
+        // Arrange
+        YandexSmartHomeResponse first = new YandexSmartHomeResponse("b/c", "ok", null, null, null);
+        YandexSmartHomeResponse second = new YandexSmartHomeResponse("c", "ok", null, null, null);
+
+        // Act
+        cache.execute("a", "b/c", () -> first);
+        YandexSmartHomeResponse result = cache.execute("a/b", "c", () -> second);
+
+        // Assert
+        assertThat(result).isSameAs(second);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommandCoalescerTest {
+
+    @Test
+    void submit_BurstOfCommands_SendsOnlyNewestTarget() throws Exception {
+        // Arrange
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CommandCoalescer coalescer = new CommandCoalescer("volume", () -> 200, () -> 5000, sent::add);
+
+        // Act
+        List<Future<Boolean>> results = new CopyOnWriteArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int volume = 11; volume <= 15; volume++) {
+                int target = volume;
+                results.add(executor.submit(() -> coalescer.submit(target)));
+                Thread.sleep(20);
+            }
+        }
+
+        // Assert
+        assertThat(sent).containsExactly(15);
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(1, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void submit_WithoutWindow_SendsEveryCommand() {
+        // Arrange
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CommandCoalescer coalescer = new CommandCoalescer("channel", () -> 0, () -> 5000, sent::add);
+
+        // Act
+        boolean first = coalescer.submit(5);
+        boolean second = CompletableFuture.supplyAsync(() -> coalescer.submit(7)).join();
+
+        // Assert
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(sent).containsExactly(5, 7);
+    }
+
+    @Test
+    void submit_BurstOfRelativeCommands_SendsOneAccumulatedTarget() throws Exception {
+        // Arrange
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CommandCoalescer coalescer = new CommandCoalescer("volume", () -> 200, () -> 5000, sent::add);
+
+        // Act
+        List<Future<Boolean>> results = new CopyOnWriteArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 4; i++) {
+                // Every step starts from the same known volume, steps past the maximum are clamped
+                results.add(executor.submit(() -> coalescer.submit(17, volume -> Math.min(volume + 1, 20))));
+                Thread.sleep(20);
+            }
+        }
+
+        // Assert
+        assertThat(sent).containsExactly(20);
+        for (Future<Boolean> result : results) {
+            assertThat(result.get(1, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void submit_WhenUpdateFails_DoesNotBlockLaterCommands() throws Exception {
+        // Arrange
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CommandCoalescer coalescer = new CommandCoalescer("volume", () -> 50, () -> 5000, sent::add);
+
+        // Act
+        assertThatThrownBy(() -> coalescer.submit(10, volume -> {
+            throw new IllegalArgumentException("Invalid volume range");
+        })).isInstanceOf(IllegalArgumentException.class);
+        Future<Boolean> result = CompletableFuture.supplyAsync(() -> coalescer.submit(12));
+
+        // Assert
+        assertThat(result.get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(sent).containsExactly(12);
+    }
+
+    @Test
+    void submit_WhenOnlyCallerIsInterrupted_DropsTarget() throws Exception {
+        // Arrange
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CommandCoalescer coalescer = new CommandCoalescer("volume", () -> 200, () -> 5000, sent::add);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        Thread caller = Thread.ofVirtual().start(() -> result.complete(coalescer.submit(12)));
+
+        // Act
+        Thread.sleep(50);
+        caller.interrupt();
+        caller.join(5000);
+        Thread.sleep(300);
+
+        // Assert
+        assertThat(result.get(1, TimeUnit.SECONDS)).isFalse();
+        assertThat(sent).isEmpty();
+    }
+
+    @Test
+    void sendPending_WhileTargetInWindow_SendsItRightAway() throws Exception {
+        // Arrange
+        List<Integer> sent = new CopyOnWriteArrayList<>();
+        CommandCoalescer coalescer = new CommandCoalescer("volume", () -> 10000, () -> 5000, sent::add);
+        CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> coalescer.submit(12));
+        Thread.sleep(50);
+
+        // Act
+        coalescer.sendPending();
+
+        // Assert
+        assertThat(sent).containsExactly(12);
+        assertThat(result.get(1, TimeUnit.SECONDS)).isTrue();
+    }
+}
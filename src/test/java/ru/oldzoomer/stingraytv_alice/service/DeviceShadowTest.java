@@ -0,0 +1,185 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+import ru.oldzoomer.stingraytv_alice.service.StingrayTVService.ChannelState;
+import ru.oldzoomer.stingraytv_alice.service.StingrayTVService.PowerState;
+import ru.oldzoomer.stingraytv_alice.service.StingrayTVService.VolumeState;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DeviceShadowTest {
+
+    private static final long RECEIVER_DELAY_MS = 300;
+
+    @Mock
+    private StingrayTVService stingrayTVService;
+
+    @Mock
+    private ReceiverCommandQueue commandQueue;
+
+    @Mock
+    private StingrayConfigurationProperties stingrayProperties;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DeviceShadow deviceShadow;
+
+    @BeforeEach
+    void setUp() {
+        when(stingrayProperties.getQueryTimeout()).thenReturn(Duration.ofSeconds(2));
+        deviceShadow = new DeviceShadow(stingrayTVService, commandQueue, stingrayProperties, eventPublisher, 1000, 15000, 5000, 30000, 60000);
+    }
+
+    @Test
+    void snapshot_ReadsStateInParallel() {
+        // Arrange
+        when(stingrayTVService.fetchPowerState()).thenAnswer(invocation -> delayed(new PowerState("on")));
+        when(stingrayTVService.fetchVolumeState()).thenAnswer(invocation -> delayed(new VolumeState(20, 7)));
+        when(stingrayTVService.fetchCurrentChannel()).thenAnswer(invocation -> delayed(new ChannelState(5, "list")));
+
+        // Act
+        long startedAt = System.nanoTime();
+        DeviceShadow.Snapshot snapshot = deviceShadow.snapshot();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(snapshot.reachable()).isTrue();
+        assertThat(snapshot.powerOn()).isTrue();
+        assertThat(snapshot.volume()).isEqualTo(7);
+        assertThat(snapshot.channelNumber()).isEqualTo(5);
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(RECEIVER_DELAY_MS).isLessThan(2 * RECEIVER_DELAY_MS);
+    }
+
+    @Test
+    void snapshot_WhenReadFails_MarksUnreachableWithoutWaitingForOthers() {
+        // Arrange
+        when(stingrayTVService.fetchPowerState()).thenThrow(new IllegalStateException("Receiver error"));
+        when(stingrayTVService.fetchVolumeState()).thenAnswer(invocation -> delayed(new VolumeState(20, 7)));
+        when(stingrayTVService.fetchCurrentChannel()).thenAnswer(invocation -> delayed(new ChannelState(5, "list")));
+
+        // Act
+        long startedAt = System.nanoTime();
+        DeviceShadow.Snapshot snapshot = deviceShadow.snapshot();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(snapshot.reachable()).isFalse();
+        assertThat(elapsedMs).isLessThan(RECEIVER_DELAY_MS);
+    }
+
+    @Test
+    void snapshot_WhenReadTimesOut_MarksUnreachable() {
+        // Arrange
+        when(stingrayProperties.getQueryTimeout()).thenReturn(Duration.ofMillis(100));
+        when(stingrayTVService.fetchPowerState()).thenAnswer(invocation -> delayed(new PowerState("on")));
+        when(stingrayTVService.fetchVolumeState()).thenReturn(new VolumeState(20, 7));
+        when(stingrayTVService.fetchCurrentChannel()).thenReturn(new ChannelState(5, "list"));
+
+        // Act
+        DeviceShadow.Snapshot snapshot = deviceShadow.snapshot();
+
+        // Assert
+        assertThat(snapshot.reachable()).isFalse();
+    }
+
+    @Test
+    void snapshot_AfterAction_ServedFromMemory() {
+        // Arrange
+        when(stingrayTVService.fetchPowerState()).thenReturn(new PowerState("on"));
+        when(stingrayTVService.fetchVolumeState()).thenReturn(new VolumeState(20, 7));
+        when(stingrayTVService.fetchCurrentChannel()).thenReturn(new ChannelState(5, "list"));
+        deviceShadow.snapshot();
+
+        // Act
+        deviceShadow.onVolumeChanged(12);
+        deviceShadow.onChannelChanged(42);
+        DeviceShadow.Snapshot snapshot = deviceShadow.snapshot();
+
+        // Assert
+        assertThat(snapshot.volume()).isEqualTo(12);
+        assertThat(snapshot.channelNumber()).isEqualTo(42);
+        verify(stingrayTVService, times(1)).fetchPowerState();
+    }
+
+    @Test
+    void poll_InBackground_QueuesOneCommandForAllReads() throws Exception {
+        // Arrange
+        when(commandQueue.execute(eq(CommandPriority.BACKGROUND), any()))
+                .thenAnswer(invocation -> invocation.<Callable<?>>getArgument(1).call());
+        when(stingrayTVService.fetchPowerState()).thenAnswer(invocation -> delayed(new PowerState("on")));
+        when(stingrayTVService.fetchVolumeState()).thenAnswer(invocation -> delayed(new VolumeState(20, 7)));
+        when(stingrayTVService.fetchCurrentChannel()).thenAnswer(invocation -> delayed(new ChannelState(5, "list")));
+
+        // Act
+        long startedAt = System.nanoTime();
+        DeviceShadow.Snapshot snapshot = deviceShadow.poll(true);
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(snapshot.reachable()).isTrue();
+        assertThat(elapsedMs).isLessThan(2 * RECEIVER_DELAY_MS);
+        verify(commandQueue, times(1)).execute(eq(CommandPriority.BACKGROUND), any());
+    }
+
+    @Test
+    void poll_InBackground_WhenExpiredInQueue_KeepsPreviousSnapshot() throws Exception {
+        // Arrange
+        when(stingrayTVService.fetchPowerState()).thenReturn(new PowerState("on"));
+        when(stingrayTVService.fetchVolumeState()).thenReturn(new VolumeState(20, 7));
+        when(stingrayTVService.fetchCurrentChannel()).thenReturn(new ChannelState(5, "list"));
+        DeviceShadow.Snapshot previous = deviceShadow.snapshot();
+        when(commandQueue.execute(eq(CommandPriority.BACKGROUND), any()))
+                .thenThrow(new TimeoutException("Command expired in receiver queue"));
+
+        // Act
+        DeviceShadow.Snapshot snapshot = deviceShadow.poll(true);
+
+        // Assert
+        assertThat(snapshot).isSameAs(previous);
+        assertThat(deviceShadow.snapshot().reachable()).isTrue();
+    }
+
+    @Test
+    void snapshot_WhenCalledConcurrentlyBeforeFirstPoll_PollsOnce() {
+        // Arrange
+        when(stingrayTVService.fetchPowerState()).thenAnswer(invocation -> delayed(new PowerState("on")));
+        when(stingrayTVService.fetchVolumeState()).thenReturn(new VolumeState(20, 7));
+        when(stingrayTVService.fetchCurrentChannel()).thenReturn(new ChannelState(5, "list"));
+
+        // Act
+        CompletableFuture<DeviceShadow.Snapshot> first = CompletableFuture.supplyAsync(deviceShadow::snapshot);
+        CompletableFuture<DeviceShadow.Snapshot> second = CompletableFuture.supplyAsync(deviceShadow::snapshot);
+
+        // Assert
+        assertThat(first.join().reachable()).isTrue();
+        assertThat(second.join().reachable()).isTrue();
+        verify(stingrayTVService, times(1)).fetchPowerState();
+    }
+
+    private static <T> T delayed(T value) throws InterruptedException {
+        Thread.sleep(RECEIVER_DELAY_MS);
+        return value;
+    }
+}
@@ -0,0 +1,147 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import ru.oldzoomer.stingraytv_alice.config.ReceiverConnectionManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the key-event pipeline against a local fake receiver.
+ */
+class KeyEventPipelineTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> receivedKeys = new CopyOnWriteArrayList<>();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final ReceiverCommandQueue commandQueue = new ReceiverCommandQueue(meterRegistry, "SN-1", 10000, 5000);
+
+    private HttpServer fakeReceiver;
+    private ReceiverConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fakeReceiver = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        fakeReceiver.createContext("/v1.6/input/events", exchange -> {
+            receivedKeys.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.sendResponseHeaders(failuresLeft.getAndDecrement() > 0 ? 503 : 200, -1);
+            exchange.close();
+        });
+        fakeReceiver.start();
+        baseUrl = "http://127.0.0.1:" + fakeReceiver.getAddress().getPort() + "/v1.6";
+
+        connectionManager = new ReceiverConnectionManager(meterRegistry, "SN-1");
+        connectionManager.setMaxTotal(2);
+        connectionManager.setDefaultMaxPerRoute(2);
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        commandQueue.shutdown();
+        httpClient.close();
+        fakeReceiver.stop(0);
+    }
+
+    @Test
+    void send_SequenceOfKeys_SendsThemInOrderOverOneConnection() {
+        // Arrange
+        KeyEventPipeline pipeline = pipeline(0);
+        List<String> keys = List.of("1", "2", "3", "Channel Up", "Channel Up", "Channel Up");
+
+        // Act
+        boolean result = pipeline.send(keys);
+
+        // Assert
+        assertThat(result).isTrue();
+        assertThat(receivedKeys).containsExactly(
+                "{\"key\":\"1\"}", "{\"key\":\"2\"}", "{\"key\":\"3\"}",
+                "{\"key\":\"Channel Up\"}", "{\"key\":\"Channel Up\"}", "{\"key\":\"Channel Up\"}");
+        assertThat(clientPorts).hasSize(1);
+    }
+
+    @Test
+    void send_WithSpacing_WaitsBetweenKeys() {
+        // Arrange
+        KeyEventPipeline pipeline = pipeline(100);
+
+        // Act
+        long startedAt = System.nanoTime();
+        boolean result = pipeline.send(List.of("Menu", "Down", "OK"));
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        // Assert
+        assertThat(result).isTrue();
+        assertThat(receivedKeys).hasSize(3);
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    void send_WhenKeyFails_StopsWithoutResendingIt() {
+        // Arrange
+        KeyEventPipeline pipeline = pipeline(0);
+        failuresLeft.set(1);
+
+        // Act
+        boolean result = pipeline.send(List.of("Volume Mute", "Pause"));
+
+        // Assert
+        assertThat(result).isFalse();
+        assertThat(receivedKeys).containsExactly("{\"key\":\"Volume Mute\"}");
+    }
+
+    @Test
+    void send_ManyKeysWithoutSpacing_ReusesTheConnection() {
+        // Arrange
+        KeyEventPipeline pipeline = pipeline(0);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            keys.add(String.valueOf(i % 10));
+        }
+
+        // Act
+        long startedAt = System.nanoTime();
+        boolean result = pipeline.send(keys);
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+
+        // Assert
+        assertThat(result).isTrue();
+        assertThat(receivedKeys).hasSize(200);
+        assertThat(clientPorts).hasSize(1);
+        // Loose floor, a loopback fake receiver handles far more than this
+        assertThat(200 / elapsedSeconds).isGreaterThan(50);
+    }
+
+    private KeyEventPipeline pipeline(long keySpacingMillis) {
+        RestClient restClient = RestClient.builder()
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+        StingrayDeviceDiscoveryService.Device device =
+                new StingrayDeviceDiscoveryService.Device(baseUrl, "model", "SN-1", "hw", "sw");
+        return new KeyEventPipeline(restClient, new ReceiverEndpoint(device), commandQueue,
+                new ReceiverCircuitBreaker(meterRegistry, "SN-1", 3, 30000),
+                new ReceiverRetryPolicy(meterRegistry, "SN-1", 2, 10, 0.1, 10, 50, 500),
+                keySpacingMillis);
+    }
+}
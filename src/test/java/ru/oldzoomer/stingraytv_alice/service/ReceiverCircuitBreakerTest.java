@@ -0,0 +1,77 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import ru.oldzoomer.stingraytv_alice.enums.CircuitState;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReceiverCircuitBreakerTest {
+
+    @Test
+    void call_AfterConsecutiveFailures_FailsFastUntilProbeSucceeds() throws Exception {
+        // Arrange
+        ReceiverCircuitBreaker circuitBreaker = new ReceiverCircuitBreaker(new SimpleMeterRegistry(), "SN-1", 2, 100);
+        AtomicInteger sent = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> circuitBreaker.call(() -> {
+                sent.incrementAndGet();
+                throw new ResourceAccessException("Connect timed out");
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+
+        // Act & Assert
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitState.OPEN);
+        assertThatThrownBy(() -> circuitBreaker.call(sent::incrementAndGet))
+                .isInstanceOf(ReceiverUnavailableException.class);
+        assertThat(sent).hasValue(2);
+
+        assertThat(circuitBreaker.isFailingFast()).isTrue();
+
+        Thread.sleep(150);
+        assertThat(circuitBreaker.isOpen()).isTrue();
+        assertThat(circuitBreaker.isFailingFast()).isFalse();
+        assertThat(circuitBreaker.call(sent::incrementAndGet)).isEqualTo(3);
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    void call_WhenProbeFails_OpensAgain() throws Exception {
+        // Arrange
+        ReceiverCircuitBreaker circuitBreaker = new ReceiverCircuitBreaker(new SimpleMeterRegistry(), "SN-1", 1, 50);
+        assertThatThrownBy(() -> circuitBreaker.call(() -> {
+            throw new ResourceAccessException("Connect timed out");
+        })).isInstanceOf(ResourceAccessException.class);
+        Thread.sleep(100);
+
+        // Act
+        assertThatThrownBy(() -> circuitBreaker.call(() -> {
+            throw new ResourceAccessException("Read timed out");
+        })).isInstanceOf(ResourceAccessException.class);
+
+        // Assert
+        assertThat(circuitBreaker.state()).isEqualTo(CircuitState.OPEN);
+        assertThatThrownBy(() -> circuitBreaker.call(() -> true))
+                .isInstanceOf(ReceiverUnavailableException.class);
+    }
+
+    @Test
+    void call_WhenReceiverAnswersWithClientError_DoesNotCountFailure() {
+        // Arrange
+        ReceiverCircuitBreaker circuitBreaker = new ReceiverCircuitBreaker(new SimpleMeterRegistry(), "SN-1", 1, 30000);
+
+        // Act
+        assertThatThrownBy(() -> circuitBreaker.call(() -> {
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        })).isInstanceOf(HttpClientErrorException.class);
+
+        // Assert
+        assertThat(circuitBreaker.isOpen()).isFalse();
+    }
+}
@@ -0,0 +1,136 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.oldzoomer.stingraytv_alice.enums.CommandPriority;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReceiverCommandQueueTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReceiverCommandQueue commandQueue = new ReceiverCommandQueue(meterRegistry, "SN-1", 200, 5000);
+
+    @AfterEach
+    void tearDown() {
+        commandQueue.shutdown();
+    }
+
+    @Test
+    void submit_RunsUserCommandsBeforeBackgroundReadsInOrder() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CompletableFuture<Boolean> blocker = commandQueue.submit(CommandPriority.USER, () -> release.await(5, TimeUnit.SECONDS));
+
+        // Act
+        CompletableFuture<Boolean> poll = commandQueue.submit(CommandPriority.BACKGROUND, () -> executed.add("poll"));
+        CompletableFuture<Boolean> channel = commandQueue.submit(CommandPriority.USER, () -> executed.add("channel"));
+        CompletableFuture<Boolean> powerOff = commandQueue.submit(CommandPriority.USER, () -> executed.add("power-off"));
+        release.countDown();
+        CompletableFuture.allOf(blocker, poll, channel, powerOff).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(executed).containsExactly("channel", "power-off", "poll");
+        assertThat(meterRegistry.get("stingray.receiver.queue.wait").tag("lane", "user").timer().count())
+                .isEqualTo(3);
+    }
+
+    @Test
+    void submit_DropsCommandsThatWaitedTooLong() throws Exception {
+        // Arrange
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> blocker = commandQueue.submit(CommandPriority.USER, () -> {
+            Thread.sleep(400);
+            return null;
+        });
+
+        // Act
+        CompletableFuture<Boolean> volumeUp = commandQueue.submit(CommandPriority.USER, () -> executed.add("volume-up"));
+        blocker.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThatThrownBy(() -> volumeUp.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(executed).isEmpty();
+        assertThat(meterRegistry.get("stingray.receiver.queue.expired").tag("lane", "user").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void execute_WhenCommandDoesNotStartInTime_WithdrawsIt() throws Exception {
+        // Arrange
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> blocker = commandQueue.submit(CommandPriority.USER, () -> {
+            Thread.sleep(400);
+            return null;
+        });
+
+        // Act & Assert
+        assertThatThrownBy(() -> commandQueue.execute(CommandPriority.USER, () -> executed.add("mute")))
+                .isInstanceOf(TimeoutException.class);
+        blocker.get(5, TimeUnit.SECONDS);
+        commandQueue.submit(CommandPriority.USER, () -> executed.add("after")).get(5, TimeUnit.SECONDS);
+        assertThat(executed).containsExactly("after");
+    }
+
+    @Test
+    void shutdown_CompletesQueuedCommands() {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        commandQueue.submit(CommandPriority.USER, () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> poll = commandQueue.submit(CommandPriority.BACKGROUND, () -> executed.add("poll"));
+
+        // Act
+        commandQueue.shutdown();
+        release.countDown();
+
+        // Assert
+        assertThatThrownBy(() -> poll.get(1, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(executed).isEmpty();
+    }
+
+    @Test
+    void execute_WhenInterruptedBeforeStart_WithdrawsCommand() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CompletableFuture<Boolean> blocker = commandQueue.submit(CommandPriority.USER, () -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread caller = Thread.ofVirtual().start(() -> {
+            try {
+                commandQueue.execute(CommandPriority.USER, () -> executed.add("mute"));
+                failure.complete(null);
+            } catch (Exception e) {
+                failure.complete(e);
+            }
+        });
+
+        // Act
+        Thread.sleep(50);
+        caller.interrupt();
+        caller.join(5000);
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        commandQueue.submit(CommandPriority.USER, () -> executed.add("after")).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(failure.get(1, TimeUnit.SECONDS)).isInstanceOf(InterruptedException.class);
+        assertThat(executed).containsExactly("after");
+    }
+}
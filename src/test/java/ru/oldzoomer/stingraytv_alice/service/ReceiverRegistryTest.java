@@ -0,0 +1,99 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReceiverRegistryTest {
+
+    @Mock
+    private StingrayDeviceDiscoveryService discoveryService;
+
+    @Mock
+    private ReceiverFactory receiverFactory;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ReceiverSnapshotStore snapshotStore;
+
+    private ReceiverRegistry receiverRegistry;
+
+    @BeforeEach
+    void setUp() {
+        when(receiverFactory.create(any())).thenAnswer(invocation -> new Receiver(
+                new ReceiverEndpoint(invocation.getArgument(0)), null, mock(ReceiverCommandQueue.class),
+                mock(ReceiverCircuitBreaker.class), mock(ChannelCatalog.class), mock(StingrayTVService.class),
+                mock(DeviceShadow.class)));
+        receiverRegistry = new ReceiverRegistry(discoveryService, receiverFactory, eventPublisher, snapshotStore);
+    }
+
+    @Test
+    void onDeviceResolved_WhenReceiverMoved_SwapsAddressOfRegisteredReceiver() {
+        // Arrange
+        Receiver registered = receiverRegistry.register(device("http://192.168.1.10:8080/v1.6"));
+
+        // Act
+        receiverRegistry.onDeviceResolved(
+                new StingrayDeviceDiscoveryService.DeviceResolvedEvent(device("http://192.168.1.42:8080/v1.6")));
+
+        // Assert
+        assertThat(receiverRegistry.find("SN-1")).containsSame(registered);
+        assertThat(registered.endpoint().baseUrl()).isEqualTo("http://192.168.1.42:8080/v1.6");
+        verify(registered.circuitBreaker()).reset();
+        verify(registered.shadow(), times(1)).start();
+        verify(receiverFactory, times(1)).create(any());
+        verify(eventPublisher, times(1)).publishEvent(any(ReceiverRegistry.ReceiverRegisteredEvent.class));
+    }
+
+    @Test
+    void onDeviceResolved_WhenAddressUnchanged_KeepsCircuitState() {
+        // Arrange
+        Receiver registered = receiverRegistry.register(device("http://192.168.1.10:8080/v1.6"));
+
+        // Act
+        receiverRegistry.onDeviceResolved(
+                new StingrayDeviceDiscoveryService.DeviceResolvedEvent(device("http://192.168.1.10:8080/v1.6")));
+
+        // Assert
+        verify(registered.circuitBreaker(), never()).reset();
+    }
+
+    @Test
+    void restoreSnapshot_RegistersLastKnownReceivers() {
+        // Arrange
+        when(snapshotStore.load()).thenReturn(List.of(new ReceiverSnapshotStore.Entry(
+                "http://192.168.1.10:8080/v1.6", "model", "SN-1", "hw", "sw", "list-1", 350)));
+
+        // Act
+        receiverRegistry.restoreSnapshot();
+
+        // Assert
+        Receiver restored = receiverRegistry.find("SN-1").orElseThrow();
+        assertThat(restored.endpoint().baseUrl()).isEqualTo("http://192.168.1.10:8080/v1.6");
+        verify(restored.channelCatalog()).restore("list-1", 350);
+        verify(restored.shadow()).start();
+    }
+
+    private static StingrayDeviceDiscoveryService.Device device(String baseUrl) {
+        return new StingrayDeviceDiscoveryService.Device(baseUrl, "model", "SN-1", "hw", "sw");
+    }
+}
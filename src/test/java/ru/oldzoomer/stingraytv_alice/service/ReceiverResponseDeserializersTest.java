@@ -0,0 +1,30 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.ObjectMapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiverResponseDeserializersTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void deserialize_ReadsKnownFieldsAndSkipsOthers() {
+        // Arrange
+        String channel = "{\"channelListId\":\"list-1\",\"extra\":{\"nested\":[1,2]},\"channelNumber\":12}";
+        String volume = "{\"state\":7,\"max\":30,\"muted\":false}";
+        String receiverInfo = "{\"userFriendlyModelName\":\"GS B622L\",\"serialNumber\":\"SN-1\","
+                + "\"hardwareId\":\"hw\",\"softwareVersion\":\"sw\",\"features\":[\"epg\"]}";
+
+        // Act & Assert
+        assertThat(objectMapper.readValue(channel, StingrayTVService.ChannelState.class))
+                .isEqualTo(new StingrayTVService.ChannelState(12, "list-1"));
+        assertThat(objectMapper.readValue(volume, StingrayTVService.VolumeState.class))
+                .isEqualTo(new StingrayTVService.VolumeState(30, 7));
+        assertThat(objectMapper.readValue("{\"state\":\"on\"}", StingrayTVService.PowerState.class))
+                .isEqualTo(new StingrayTVService.PowerState("on"));
+        assertThat(objectMapper.readValue(receiverInfo, StingrayDeviceDiscoveryService.ReceiverInfo.class))
+                .isEqualTo(new StingrayDeviceDiscoveryService.ReceiverInfo("GS B622L", "SN-1", "hw", "sw"));
+    }
+}
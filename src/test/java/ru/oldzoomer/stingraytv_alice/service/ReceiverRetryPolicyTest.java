@@ -0,0 +1,94 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+import ru.oldzoomer.stingraytv_alice.enums.ReceiverCommand;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReceiverRetryPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void execute_IdempotentCommand_IsRetriedAfterConnectionFailure() throws Exception {
+        // Arrange
+        ReceiverRetryPolicy retryPolicy = new ReceiverRetryPolicy(meterRegistry, "SN-1", 2, 10, 0.1, 10, 50, 500);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        String result = retryPolicy.execute(ReceiverCommand.VOLUME, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new ResourceAccessException("Connection reset");
+            }
+            return "ok";
+        });
+
+        // Assert
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(2);
+    }
+
+    @Test
+    void execute_ToggleCommand_IsNeverSentTwice() {
+        // Arrange
+        ReceiverRetryPolicy retryPolicy = new ReceiverRetryPolicy(meterRegistry, "SN-1", 2, 10, 0.1, 10, 50, 500);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act & Assert
+        assertThatThrownBy(() -> retryPolicy.execute(ReceiverCommand.MUTE, () -> {
+            attempts.incrementAndGet();
+            throw new ResourceAccessException("Connection reset");
+        })).isInstanceOf(ResourceAccessException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void execute_WhenBudgetExhausted_DoesNotRetry() {
+        // Arrange
+        ReceiverRetryPolicy retryPolicy = new ReceiverRetryPolicy(meterRegistry, "SN-1", 2, 10, 0.1, 1, 50, 500);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> retryPolicy.execute(ReceiverCommand.VOLUME, () -> {
+                attempts.incrementAndGet();
+                throw new ResourceAccessException("Connection reset");
+            })).isInstanceOf(ResourceAccessException.class);
+        }
+
+        // Assert
+        // The single budget token pays for one retry, later failures are not retried
+        assertThat(attempts).hasValue(4);
+        assertThat(meterRegistry.get("stingray.receiver.retries.exhausted").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void read_WhenFirstRequestIsSlow_ReturnsHedgedAnswer() throws Exception {
+        // Arrange
+        ReceiverRetryPolicy retryPolicy = new ReceiverRetryPolicy(meterRegistry, "SN-1", 2, 10, 0.1, 10, 50, 100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Act
+        long startedAt = System.nanoTime();
+        String result = retryPolicy.read(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(1000);
+                return "slow";
+            }
+            return "hedged";
+        });
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+
+        // Assert
+        assertThat(result).isEqualTo("hedged");
+        assertThat(attempts).hasValue(2);
+        assertThat(elapsedMillis).isLessThan(800);
+        assertThat(meterRegistry.get("stingray.receiver.retries").tag("kind", "hedge").counter().count())
+                .isEqualTo(1);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReceiverSnapshotStoreTest {
+
+    private static final ReceiverSnapshotStore.Entry ENTRY = new ReceiverSnapshotStore.Entry(
+            "http://192.168.1.10:50000/v1.6", "GS B622L", "SN-1", "hw-1", "sw-1", "list-1", 350);
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void load_AfterSave_ReturnsSavedReceivers() {
+        // Arrange
+        Path snapshotFile = directory.resolve("state/receivers.json");
+        new ReceiverSnapshotStore(snapshotFile.toString()).save(List.of(ENTRY));
+
+        // Act
+        List<ReceiverSnapshotStore.Entry> loaded = new ReceiverSnapshotStore(snapshotFile.toString()).load();
+
+        // Assert
+        assertThat(loaded).containsExactly(ENTRY);
+        assertThat(directory.resolve("state")).isDirectoryNotContaining("glob:**.tmp");
+    }
+
+    @Test
+    void loadLinkedUsers_AfterSave_ReturnsSavedUsers() {
+        // Arrange
+        Path snapshotFile = directory.resolve("state/receivers.json");
+        new ReceiverSnapshotStore(snapshotFile.toString()).saveLinkedUsers(List.of("user-2", "user-1"));
+
+        // Act
+        Set<String> loaded = new ReceiverSnapshotStore(snapshotFile.toString()).loadLinkedUsers();
+
+        // Assert
+        assertThat(loaded).containsExactly("user-1", "user-2");
+        assertThat(directory.resolve("state/linked-users.json")).exists();
+    }
+
+    @Test
+    void load_WhenFileIsCorrupt_ReturnsNothing() throws Exception {
+        // Arrange
+        Path snapshotFile = directory.resolve("receivers.json");
+        Files.writeString(snapshotFile, "{\"version\":1,\"receivers\":[{\"serialNumber\":");
+
+        // Act
+        List<ReceiverSnapshotStore.Entry> loaded = new ReceiverSnapshotStore(snapshotFile.toString()).load();
+
+        // Assert
+        assertThat(loaded).isEmpty();
+    }
+
+    @Test
+    void load_WhenFormatIsOld_ReturnsNothing() throws Exception {
+        // Arrange
+        Path snapshotFile = directory.resolve("receivers.json");
+        Files.writeString(snapshotFile, "{\"version\":0,\"receivers\":[{\"serialNumber\":\"SN-1\","
+                + "\"baseUrl\":\"http://192.168.1.10:50000/v1.6\"}]}");
+
+        // Act
+        List<ReceiverSnapshotStore.Entry> loaded = new ReceiverSnapshotStore(snapshotFile.toString()).load();
+
+        // Assert
+        assertThat(loaded).isEmpty();
+    }
+}
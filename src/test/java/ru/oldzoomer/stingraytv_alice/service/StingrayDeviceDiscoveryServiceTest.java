@@ -0,0 +1,161 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.web.client.RestClient;
+import ru.oldzoomer.stingraytv_alice.config.StingrayConfigurationProperties;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs discovery against local fake receivers.
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StingrayDeviceDiscoveryServiceTest {
+
+    private static final long SLOW_RECEIVER_DELAY_MS = 4000;
+
+    @Mock
+    private StingrayConfigurationProperties stingrayProperties;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final List<HttpServer> fakeReceivers = new ArrayList<>();
+    private StingrayDeviceDiscoveryService discoveryService;
+
+    @BeforeEach
+    void setUp() {
+        when(stingrayProperties.getReceiverPort()).thenReturn(50000);
+        when(stingrayProperties.isMdnsEnabled()).thenReturn(false);
+        discoveryService = new StingrayDeviceDiscoveryService(stingrayProperties, RestClient.create(), eventPublisher);
+    }
+
+    @AfterEach
+    void tearDown() {
+        discoveryService.close();
+        fakeReceivers.forEach(receiver -> receiver.stop(0));
+    }
+
+    @Test
+    void discoverStingrayDevices_FirstValidatedReceiverWinsOverSlowOne() throws IOException {
+        // Arrange
+        String fast = fakeReceiver("SN-FAST", 0);
+        String slow = fakeReceiver("SN-SLOW", SLOW_RECEIVER_DELAY_MS);
+        when(stingrayProperties.getReceiverIp()).thenReturn(slow + "," + fast);
+
+        // Act
+        long startedAt = System.nanoTime();
+        List<StingrayDeviceDiscoveryService.Device> devices = discoveryService.discoverStingrayDevices();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(devices).extracting(StingrayDeviceDiscoveryService.Device::serialNumber)
+                .containsExactly("SN-FAST");
+        assertThat(elapsedMs).isLessThan(SLOW_RECEIVER_DELAY_MS);
+    }
+
+    @Test
+    void discoverStingrayDevices_ReturnsEveryReceiverAnsweringWithinGracePeriod() throws IOException {
+        // Arrange
+        String first = fakeReceiver("SN-1", 0);
+        String second = fakeReceiver("SN-2", 100);
+        when(stingrayProperties.getReceiverIp()).thenReturn(first + ", " + second);
+
+        // Act
+        List<StingrayDeviceDiscoveryService.Device> devices = discoveryService.discoverStingrayDevices();
+
+        // Assert
+        assertThat(devices).extracting(StingrayDeviceDiscoveryService.Device::serialNumber)
+                .containsExactlyInAnyOrder("SN-1", "SN-2");
+        assertThat(devices).extracting(StingrayDeviceDiscoveryService.Device::baseUrl)
+                .containsExactlyInAnyOrder("http://" + first + "/v1.6", "http://" + second + "/v1.6");
+    }
+
+    @Test
+    void discoverStingrayDevices_WhenNoReceiverAnswers_ReturnsNothingWithoutWaitingForTimeout() throws IOException {
+        // Arrange
+        HttpServer broken = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        broken.createContext("/v1.6/receiver-info", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        broken.start();
+        fakeReceivers.add(broken);
+        when(stingrayProperties.getReceiverIp()).thenReturn("127.0.0.1:" + broken.getAddress().getPort());
+
+        // Act
+        long startedAt = System.nanoTime();
+        List<StingrayDeviceDiscoveryService.Device> devices = discoveryService.discoverStingrayDevices();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(devices).isEmpty();
+        assertThat(elapsedMs).isLessThan(2000);
+    }
+
+    @Test
+    void discoverStingrayDevices_WhenSubnetScanEnabled_FindsReceiversInSubnet() throws IOException {
+        // Arrange
+        HttpServer first = fakeReceiver("127.0.0.2", 0, "SN-1", 0);
+        int port = first.getAddress().getPort();
+        fakeReceiver("127.0.0.3", port, "SN-2", 0);
+        when(stingrayProperties.getReceiverPort()).thenReturn(port);
+        when(stingrayProperties.isSubnetScanEnabled()).thenReturn(true);
+        when(stingrayProperties.getSubnetScanRanges()).thenReturn(List.of("127.0.0.0/24"));
+        when(stingrayProperties.getSubnetScanConnectTimeout()).thenReturn(Duration.ofMillis(300));
+        when(stingrayProperties.getSubnetScanMaxConcurrency()).thenReturn(256);
+
+        // Act
+        long startedAt = System.nanoTime();
+        List<StingrayDeviceDiscoveryService.Device> devices = discoveryService.discoverStingrayDevices();
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - startedAt).toMillis();
+
+        // Assert
+        assertThat(devices).extracting(StingrayDeviceDiscoveryService.Device::baseUrl)
+                .containsExactlyInAnyOrder("http://127.0.0.2:" + port + "/v1.6", "http://127.0.0.3:" + port + "/v1.6");
+        assertThat(elapsedMs).isLessThan(2000);
+    }
+
+    private String fakeReceiver(String serialNumber, long delayMs) throws IOException {
+        HttpServer receiver = fakeReceiver("127.0.0.1", 0, serialNumber, delayMs);
+        return "127.0.0.1:" + receiver.getAddress().getPort();
+    }
+
+    private HttpServer fakeReceiver(String address, int port, String serialNumber, long delayMs) throws IOException {
+        HttpServer receiver = HttpServer.create(new InetSocketAddress(address, port), 0);
+        receiver.createContext("/v1.6/receiver-info", exchange -> {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"userFriendlyModelName\":\"GS B622L\",\"serialNumber\":\"" + serialNumber
+                    + "\",\"hardwareId\":\"hw\",\"softwareVersion\":\"sw\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        receiver.start();
+        fakeReceivers.add(receiver);
+        return receiver;
+    }
+}
@@ -1,20 +1,35 @@
 package ru.oldzoomer.stingraytv_alice.service;
 
-import org.junit.jupiter.api.Disabled;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import ru.oldzoomer.stingraytv_alice.enums.ReceiverCommand;
 import ru.oldzoomer.stingraytv_alice.service.StingrayTVService.ChannelState;
 import ru.oldzoomer.stingraytv_alice.service.StingrayTVService.PowerState;
 import ru.oldzoomer.stingraytv_alice.service.StingrayTVService.VolumeState;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,15 +51,38 @@ class StingrayTVServiceTest {
     private RestClient.ResponseSpec responseSpec;
 
     @Mock
-    private StingrayDeviceDiscoveryService.Device device;
+    private ReceiverEndpoint endpoint;
+
+    @Mock
+    private ChannelCatalog channelCatalog;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private KeyEventPipeline keyEventPipeline;
+
+    @Spy
+    private ReceiverCircuitBreaker circuitBreaker = new ReceiverCircuitBreaker(new SimpleMeterRegistry(), "SN-1", 3, 30000);
+
+    @Spy
+    private ReceiverRetryPolicy retryPolicy = new ReceiverRetryPolicy(new SimpleMeterRegistry(), "SN-1", 2, 10, 0.1, 10, 50, 500);
+
+    @Spy
+    private ReceiverCommandQueue commandQueue = new ReceiverCommandQueue(new SimpleMeterRegistry(), "SN-1", 10000, 5000);
 
     @InjectMocks
     private StingrayTVService stingrayTVService;
 
+    @AfterEach
+    void tearDown() {
+        commandQueue.shutdown();
+    }
+
     @Test
     void getPowerState_WhenDeviceFound_ReturnsPowerState() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         //noinspection unchecked
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(BASE_URL + "/power")).thenReturn(requestHeadersUriSpec);
@@ -63,7 +101,7 @@ class StingrayTVServiceTest {
     @Test
     void getPowerState_WhenDeviceNotFound_ReturnsOffline() {
         // Arrange
-        when(device.baseUrl()).thenReturn(null);
+        when(endpoint.baseUrl()).thenReturn(null);
 
         // Act
         PowerState result = stingrayTVService.getPowerState();
@@ -76,7 +114,7 @@ class StingrayTVServiceTest {
     @Test
     void getPowerState_WhenExceptionOccurs_ReturnsOffline() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.get()).thenThrow(new RuntimeException("Network error"));
 
         // Act
@@ -87,10 +125,42 @@ class StingrayTVServiceTest {
         assertThat(result.state()).isEqualTo("offline");
     }
 
+    @Test
+    void setPowerState_WhenCircuitOpen_FailsWithoutCallingReceiver() {
+        // Arrange
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
+        when(restClient.put()).thenThrow(new ResourceAccessException("Connect timed out"));
+        for (int i = 0; i < 3; i++) {
+            stingrayTVService.setPowerState(true);
+        }
+
+        // Act
+        boolean result = stingrayTVService.setPowerState(true);
+
+        // Assert
+        assertThat(result).isFalse();
+        assertThat(circuitBreaker.isOpen()).isTrue();
+        verify(restClient, times(3)).put();
+    }
+
+    @Test
+    void mute_WhenKeySent_ReturnsTrue() {
+        // Arrange
+        when(endpoint.serialNumber()).thenReturn("SN-1");
+        when(keyEventPipeline.send(List.of("Volume Mute"))).thenReturn(true);
+
+        // Act
+        boolean result = stingrayTVService.mute();
+
+        // Assert
+        assertThat(result).isTrue();
+        verify(eventPublisher).publishEvent(new StingrayTVService.CommandAppliedEvent("SN-1", ReceiverCommand.MUTE, 0));
+    }
+
     @Test
     void setPowerState_WhenDeviceFound_ReturnsTrue() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.put()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(BASE_URL + "/power")).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
@@ -108,7 +178,7 @@ class StingrayTVServiceTest {
     @Test
     void setPowerState_WhenDeviceNotFound_ReturnsFalse() {
         // Arrange
-        when(device.baseUrl()).thenReturn(null);
+        when(endpoint.baseUrl()).thenReturn(null);
 
         // Act
         boolean result = stingrayTVService.setPowerState(true);
@@ -120,7 +190,7 @@ class StingrayTVServiceTest {
     @Test
     void setPowerState_WhenExceptionOccurs_ReturnsFalse() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.put()).thenThrow(new RuntimeException("Network error"));
 
         // Act
@@ -133,7 +203,7 @@ class StingrayTVServiceTest {
     @Test
     void getVolumeState_WhenDeviceFound_ReturnsVolumeState() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         //noinspection unchecked
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(BASE_URL + "/volume")).thenReturn(requestHeadersUriSpec);
@@ -152,7 +222,7 @@ class StingrayTVServiceTest {
     @Test
     void getVolumeState_WhenDeviceNotFound_ReturnsZero() {
         // Arrange
-        when(device.baseUrl()).thenReturn(null);
+        when(endpoint.baseUrl()).thenReturn(null);
 
         // Act
         VolumeState result = stingrayTVService.getVolumeState();
@@ -165,7 +235,7 @@ class StingrayTVServiceTest {
     @Test
     void getVolumeState_WhenExceptionOccurs_ReturnsZero() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.get()).thenThrow(new RuntimeException("Network error"));
 
         // Act
@@ -179,7 +249,7 @@ class StingrayTVServiceTest {
     @Test
     void setVolume_WithValidVolume_ReturnsTrue() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.put()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(BASE_URL + "/volume")).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
@@ -194,6 +264,32 @@ class StingrayTVServiceTest {
         assertThat(result).isTrue();
     }
 
+    @Test
+    void setPowerState_AfterCoalescedVolume_SendsVolumeFirst() throws Exception {
+        // Arrange
+        stingrayTVService.setCoalescingWindowMillis(10000);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
+        when(restClient.put()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(BASE_URL + "/volume")).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(BASE_URL + "/power")).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.body(anyMap())).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toBodilessEntity()).thenReturn(ResponseEntity.noContent().build());
+        CompletableFuture<Boolean> volume = CompletableFuture.supplyAsync(() -> stingrayTVService.setVolume(30));
+        Thread.sleep(100);
+
+        // Act
+        boolean powerOff = stingrayTVService.setPowerState(false);
+
+        // Assert
+        assertThat(powerOff).isTrue();
+        assertThat(volume.get(1, TimeUnit.SECONDS)).isTrue();
+        InOrder receiver = inOrder(requestBodyUriSpec);
+        receiver.verify(requestBodyUriSpec).uri(BASE_URL + "/volume");
+        receiver.verify(requestBodyUriSpec).uri(BASE_URL + "/power");
+    }
+
     @Test
     void setVolume_WithInvalidVolume_ReturnsFalse() {
         // Act & Assert
@@ -204,7 +300,7 @@ class StingrayTVServiceTest {
     @Test
     void setVolume_WhenDeviceNotFound_ReturnsFalse() {
         // Arrange
-        when(device.baseUrl()).thenReturn(null);
+        when(endpoint.baseUrl()).thenReturn(null);
 
         // Act
         boolean result = stingrayTVService.setVolume(50);
@@ -216,7 +312,7 @@ class StingrayTVServiceTest {
     @Test
     void setVolume_WhenExceptionOccurs_ReturnsFalse() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.put()).thenThrow(new RuntimeException("Network error"));
 
         // Act
@@ -227,10 +323,9 @@ class StingrayTVServiceTest {
     }
 
     @Test
-    @Disabled("Disabled for now, because it's not possible to mock the WebClient")
     void getCurrentChannel_WhenDeviceFound_ReturnsChannelState() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         //noinspection unchecked
         when(restClient.get()).thenReturn(requestHeadersUriSpec);
         when(requestHeadersUriSpec.uri(BASE_URL + "/channels/current")).thenReturn(requestHeadersUriSpec);
@@ -250,7 +345,7 @@ class StingrayTVServiceTest {
     @Test
     void getCurrentChannel_WhenDeviceNotFound_ReturnsDefaultValues() {
         // Arrange
-        when(device.baseUrl()).thenReturn(null);
+        when(endpoint.baseUrl()).thenReturn(null);
 
         // Act
         ChannelState result = stingrayTVService.getCurrentChannel();
@@ -264,7 +359,7 @@ class StingrayTVServiceTest {
     @Test
     void getCurrentChannel_WhenExceptionOccurs_ReturnsDefaultValues() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
 
         // Act
         ChannelState result = stingrayTVService.getCurrentChannel();
@@ -278,7 +373,7 @@ class StingrayTVServiceTest {
     @Test
     void changeChannel_WithValidChannel_ReturnsTrue() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.put()).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.uri(BASE_URL + "/channels/current")).thenReturn(requestBodyUriSpec);
         when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
@@ -293,6 +388,44 @@ class StingrayTVServiceTest {
         assertThat(result).isTrue();
     }
 
+    @Test
+    void changeChannel_WhenCatalogLoaded_UsesCatalogChannelListId() {
+        // Arrange
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
+        when(channelCatalog.isLoaded()).thenReturn(true);
+        when(channelCatalog.contains(10)).thenReturn(true);
+        when(channelCatalog.channelListId()).thenReturn("list-1");
+        when(restClient.put()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(BASE_URL + "/channels/current")).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.contentType(any())).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.body(Map.of("channelNumber", 10, "channelListId", "list-1")))
+                .thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.toBodilessEntity()).thenReturn(ResponseEntity.noContent().build());
+
+        // Act
+        boolean result = stingrayTVService.changeChannel(10);
+
+        // Assert
+        assertThat(result).isTrue();
+        verify(restClient, never()).get();
+    }
+
+    @Test
+    void changeChannel_WhenChannelNotInCatalog_ReturnsFalseWithoutRequest() {
+        // Arrange
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
+        when(channelCatalog.isLoaded()).thenReturn(true);
+        when(channelCatalog.contains(4242)).thenReturn(false);
+
+        // Act
+        boolean result = stingrayTVService.changeChannel(4242);
+
+        // Assert
+        assertThat(result).isFalse();
+        verify(restClient, never()).put();
+    }
+
     @Test
     void changeChannel_WithNegativeChannel_ReturnsFalse() {
         // Act & Assert
@@ -302,7 +435,7 @@ class StingrayTVServiceTest {
     @Test
     void changeChannel_WhenDeviceNotFound_ReturnsFalse() {
         // Arrange
-        when(device.baseUrl()).thenReturn(null);
+        when(endpoint.baseUrl()).thenReturn(null);
 
         // Act
         boolean result = stingrayTVService.changeChannel(10);
@@ -314,7 +447,7 @@ class StingrayTVServiceTest {
     @Test
     void changeChannel_WhenExceptionOccurs_ReturnsFalse() {
         // Arrange
-        when(device.baseUrl()).thenReturn(BASE_URL);
+        when(endpoint.baseUrl()).thenReturn(BASE_URL);
         when(restClient.put()).thenThrow(new RuntimeException("Network error"));
 
         // Act
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -15,11 +16,13 @@ import ru.oldzoomer.stingraytv_alice.dto.yandex.YandexSmartHomeResponse;
 import ru.oldzoomer.stingraytv_alice.enums.QueryTypes;
 import ru.oldzoomer.stingraytv_alice.gateway.YandexSmartHomeGateway;
 
+import java.time.Duration;
 import java.time.Instant;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -32,6 +35,12 @@ class YandexSmartHomeServiceTest {
     @Mock
     private YandexSmartHomeGateway smartHomeGateway;
 
+    @Mock
+    private YandexStateNotifier stateNotifier;
+
+    @Spy
+    private ActionIdempotencyCache actionIdempotencyCache = new ActionIdempotencyCache(16, Duration.ofMinutes(1), Duration.ofSeconds(10));
+
     @InjectMocks
     private YandexSmartHomeService smartHomeService;
 
@@ -77,21 +86,40 @@ class YandexSmartHomeServiceTest {
     }
 
     @Test
-    void processUserDevicesRequest_WhenAuthenticated_ShouldReturnResponse() {
+    void processDeviceActionRequest_WhenRetried_ShouldNotExecuteActionsAgain() {
         // Given
+        YandexSmartHomeRequest request = new YandexSmartHomeRequest(null);
         YandexSmartHomeResponse expectedResponse = createTestResponse();
+        String requestId = "retried-request-id";
+
+        setupAuthenticatedUser();
+        when(smartHomeGateway.processRequest(request, requestId, "test-user", QueryTypes.DEVICES_ACTION)).thenReturn(expectedResponse);
+
+        // When
+        smartHomeService.processDeviceActionRequest(request, requestId);
+        YandexSmartHomeResponse result = smartHomeService.processDeviceActionRequest(request, requestId);
+
+        // Then
+        assertThat(result).isEqualTo(expectedResponse);
+        verify(smartHomeGateway, times(1)).processRequest(request, requestId, "test-user", QueryTypes.DEVICES_ACTION);
+    }
+
+    @Test
+    void processUserDevicesRequest_WhenAuthenticated_ShouldReturnResponse() {
+        // Given
+        byte[] expectedResponse = "{\"request_id\":\"test-request-id\",\"status\":\"ok\"}".getBytes();
         String requestId = "test-request-id";
 
         setupAuthenticatedUser();
-        when(smartHomeGateway.processRequest(any(YandexSmartHomeRequest.class), eq(requestId), eq("test-user"), any(QueryTypes.class)))
-                .thenReturn(expectedResponse);
+        when(smartHomeGateway.processDiscoveryRequest(requestId, "test-user")).thenReturn(expectedResponse);
 
         // When
-        YandexSmartHomeResponse result = smartHomeService.processUserDevicesRequest(requestId);
+        byte[] result = smartHomeService.processUserDevicesRequest(requestId);
 
         // Then
         assertThat(result).isEqualTo(expectedResponse);
-        verify(smartHomeGateway).processRequest(any(YandexSmartHomeRequest.class), eq(requestId), eq("test-user"), any(QueryTypes.class));
+        verify(smartHomeGateway).processDiscoveryRequest(requestId, "test-user");
+        verify(stateNotifier).registerUser("test-user");
     }
 
     @Test
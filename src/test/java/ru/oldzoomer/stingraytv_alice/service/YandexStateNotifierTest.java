@@ -0,0 +1,115 @@
+package ru.oldzoomer.stingraytv_alice.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import ru.oldzoomer.stingraytv_alice.config.YandexCallbackProperties;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class YandexStateNotifierTest {
+
+    @Mock
+    private YandexCallbackProperties callbackProperties;
+
+    private final BlockingQueue<String> receivedRequests = new LinkedBlockingQueue<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private HttpServer stubServer;
+    private YandexStateNotifier notifier;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stubServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stubServer.createContext("/api/v1/skills/test-skill/callback/state", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            receivedRequests.add(exchange.getRequestHeaders().getFirst("Authorization") + " " + body);
+            int status = failuresLeft.getAndDecrement() > 0 ? 500 : 202;
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+        });
+        stubServer.start();
+
+        when(callbackProperties.getUrl()).thenReturn("http://127.0.0.1:" + stubServer.getAddress().getPort());
+        when(callbackProperties.getSkillId()).thenReturn("test-skill");
+        when(callbackProperties.getToken()).thenReturn("test-token");
+        when(callbackProperties.isEnabled()).thenReturn(true);
+        when(callbackProperties.getDebounce()).thenReturn(Duration.ofMillis(200));
+        when(callbackProperties.getMaxAttempts()).thenReturn(3);
+        when(callbackProperties.getInitialBackoff()).thenReturn(Duration.ofMillis(50));
+        when(callbackProperties.getMaxInFlight()).thenReturn(1);
+
+        notifier = new YandexStateNotifier(callbackProperties, new ReceiverSnapshotStore(""));
+        notifier.registerUser("user-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        stubServer.stop(0);
+    }
+
+    @Test
+    void onStateChanged_BatchesChangesWithinDebounceWindow() throws InterruptedException {
+        // Act
+        notifier.onStateChanged(event(snapshot(true, 5, 3), snapshot(true, 6, 3)));
+        notifier.onStateChanged(event(snapshot(true, 6, 3), snapshot(true, 6, 8)));
+
+        // Assert
+        String request = receivedRequests.poll(5, TimeUnit.SECONDS);
+        assertThat(request).startsWith("OAuth test-token ");
+        assertThat(request).contains("\"user_id\":\"user-1\"", "\"id\":\"SN-1\"",
+                "\"instance\":\"channel\",\"value\":6", "\"instance\":\"volume\",\"value\":8");
+        assertThat(receivedRequests.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void onStateChanged_RetriesFailedNotification() throws InterruptedException {
+        // Arrange
+        failuresLeft.set(1);
+
+        // Act
+        notifier.onStateChanged(event(snapshot(false, 5, 3), snapshot(true, 5, 3)));
+
+        // Assert
+        assertThat(receivedRequests.poll(5, TimeUnit.SECONDS)).contains("\"instance\":\"on\",\"value\":true");
+        assertThat(receivedRequests.poll(5, TimeUnit.SECONDS)).contains("\"instance\":\"on\",\"value\":true");
+    }
+
+    @Test
+    void onStateChanged_WhenUnlinked_SendsNothing() throws InterruptedException {
+        // Arrange
+        notifier.unregisterUser("user-1");
+
+        // Act
+        notifier.onStateChanged(event(snapshot(true, 5, 3), snapshot(true, 7, 3)));
+
+        // Assert
+        assertThat(receivedRequests.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private static DeviceShadow.StateChangedEvent event(DeviceShadow.Snapshot previous, DeviceShadow.Snapshot current) {
+        return new DeviceShadow.StateChangedEvent("SN-1", previous, current);
+    }
+
+    private static DeviceShadow.Snapshot snapshot(boolean powerOn, int channelNumber, int volume) {
+        return new DeviceShadow.Snapshot(true, powerOn, volume, 20, false, channelNumber, Instant.now());
+    }
+}